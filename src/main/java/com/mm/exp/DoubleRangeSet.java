@@ -0,0 +1,151 @@
+package com.mm.exp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of doubles, held as a sorted list of disjoint, closed intervals, like {@link LongRangeSet}. Two intervals
+ * are coalesced if they overlap, or if no double lies between them.
+ * <p>
+ * Each bound is packed into a long that sorts in the same order as the double, and in which adjacent doubles map to
+ * adjacent longs. That makes the set of doubles behave like a set of longs, so this delegates all of its work to a
+ * LongRangeSet over the range of -Infinity through Infinity. Zero and negative zero are treated as the same value.
+ * NaN is never in the set, and can't be used as a bound.
+ * <p>
+ * This class is not thread-safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class DoubleRangeSet {
+  private static final long DOMAIN_MIN = toKey(Double.NEGATIVE_INFINITY);
+  private static final long DOMAIN_MAX = toKey(Double.POSITIVE_INFINITY);
+
+  private LongRangeSet keys;
+
+  public DoubleRangeSet() {
+    this(new LongRangeSet(DOMAIN_MIN, DOMAIN_MAX));
+  }
+
+  private DoubleRangeSet(LongRangeSet keys) {
+    this.keys = keys;
+  }
+
+  /**
+   * Builds a set holding every value in any of the ranges. The ranges may be in any order, and may overlap.
+   * @param ranges The ranges
+   * @return The set
+   */
+  public static DoubleRangeSet of(Collection<Range<Double>> ranges) {
+    long[] mins = new long[ranges.size()];
+    long[] maxes = new long[ranges.size()];
+    int i = 0;
+    for (Range<Double> range : ranges) {
+      mins[i] = toKey(range.getMin());
+      maxes[i] = toKey(range.getMax());
+      i++;
+    }
+    return new DoubleRangeSet(LongRangeSet.coalesce(mins, maxes, DOMAIN_MIN, DOMAIN_MAX));
+  }
+
+  /**
+   * @return The number of disjoint intervals in the set
+   */
+  public int rangeCount() {
+    return keys.rangeCount();
+  }
+
+  public boolean isEmpty() {
+    return keys.isEmpty();
+  }
+
+  public boolean contains(double value) {
+    return (value == value) && keys.contains(toKey(value));
+  }
+
+  /**
+   * Adds every value from min through max. If min is greater than max, they are swapped, as {@link Range} does.
+   */
+  public void add(double min, double max) {
+    keys.add(toKey(min), toKey(max));
+  }
+
+  public void add(Range<Double> range) {
+    add(range.getMin(), range.getMax());
+  }
+
+  /**
+   * Removes every value from min through max. If min is greater than max, they are swapped, as {@link Range} does.
+   */
+  public void remove(double min, double max) {
+    keys.remove(toKey(min), toKey(max));
+  }
+
+  public void remove(Range<Double> range) {
+    remove(range.getMin(), range.getMax());
+  }
+
+  /**
+   * @return A new set holding every value in either set
+   */
+  public DoubleRangeSet union(DoubleRangeSet other) {
+    return new DoubleRangeSet(keys.union(other.keys));
+  }
+
+  /**
+   * @return A new set holding every value in both sets
+   */
+  public DoubleRangeSet intersect(DoubleRangeSet other) {
+    return new DoubleRangeSet(keys.intersect(other.keys));
+  }
+
+  /**
+   * @return A new set holding every double, other than NaN, that isn't in this set
+   */
+  public DoubleRangeSet complement() {
+    return new DoubleRangeSet(keys.complement());
+  }
+
+  /**
+   * @return The intervals, in order
+   */
+  public List<Range<Double>> toRanges() {
+    int count = keys.rangeCount();
+    List<Range<Double>> ranges = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      ranges.add(new Range<>(fromKey(keys.getMin(i)), fromKey(keys.getMax(i))));
+    }
+    return ranges;
+  }
+
+  /**
+   * Maps a double to a long that sorts in the same order, with no gaps between adjacent doubles. Flipping the
+   * non-sign bits of a negative double reverses the order of the negatives, so they sort below the positives. That
+   * would put negative zero at -1, so the negatives get shifted up by one to fill its slot.
+   */
+  private static long toKey(double value) {
+    if (value != value) {
+      throw new IllegalArgumentException("NaN");
+    }
+    long bits = Double.doubleToLongBits(value + 0.0); // adding 0.0 turns -0.0 into 0.0
+    return (bits >= 0L) ? bits : ((bits ^ Long.MAX_VALUE) + 1L);
+  }
+
+  private static double fromKey(long key) {
+    return Double.longBitsToDouble((key >= 0L) ? key : ((key - 1L) ^ Long.MAX_VALUE));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj == this) || ((obj instanceof DoubleRangeSet) && keys.equals(((DoubleRangeSet) obj).keys));
+  }
+
+  @Override
+  public int hashCode() {
+    return keys.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return toRanges().toString();
+  }
+}
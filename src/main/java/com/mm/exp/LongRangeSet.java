@@ -0,0 +1,292 @@
+package com.mm.exp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of longs, held as a sorted list of disjoint, closed intervals. Intervals that overlap or touch are coalesced,
+ * so the set {1, 2, 3, 7} is held as [1, 3] and [7, 7]. The bounds are packed into a single long array, two
+ * entries per interval, so a set of a million intervals takes 16 MB and no other objects.
+ * <p>
+ * {@link #contains(long)} takes O(log n) time by binary search. The set algebra methods are linear merges of the
+ * two sorted lists. Building a set from a collection of Ranges sorts the bounds in parallel.
+ * <p>
+ * This class is not thread-safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class LongRangeSet {
+  private final long domainMin;
+  private final long domainMax;
+  // bounds[2i] is the min of interval i, and bounds[2i + 1] is its max.
+  private long[] bounds;
+  private int count;
+
+  public LongRangeSet() {
+    this(Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates an empty set of values between domainMin and domainMax. The complement is taken within that domain.
+   */
+  LongRangeSet(long domainMin, long domainMax) {
+    this(domainMin, domainMax, new long[0], 0);
+  }
+
+  private LongRangeSet(long domainMin, long domainMax, long[] bounds, int count) {
+    this.domainMin = domainMin;
+    this.domainMax = domainMax;
+    this.bounds = bounds;
+    this.count = count;
+  }
+
+  /**
+   * Builds a set holding every value in any of the ranges. The ranges may be in any order, and may overlap.
+   * @param ranges The ranges
+   * @return The set
+   */
+  public static LongRangeSet of(Collection<Range<Long>> ranges) {
+    long[] mins = new long[ranges.size()];
+    long[] maxes = new long[ranges.size()];
+    int i = 0;
+    for (Range<Long> range : ranges) {
+      mins[i] = range.getMin();
+      maxes[i] = range.getMax();
+      i++;
+    }
+    return coalesce(mins, maxes, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Builds a set from unsorted interval bounds, where each mins[i] is no greater than maxes[i]. The arrays get sorted
+   * in place.
+   * <p>
+   * The mins and maxes may be sorted separately, because wherever the union has a gap, the number of mins at or
+   * before the gap equals the number of maxes before it. So the union has a gap after the i-th smallest max exactly
+   * when the (i+1)-th smallest min lies beyond it.
+   */
+  static LongRangeSet coalesce(long[] mins, long[] maxes, long domainMin, long domainMax) {
+    Arrays.parallelSort(mins);
+    Arrays.parallelSort(maxes);
+    Builder builder = new Builder(mins.length);
+    for (int i = 0; i < mins.length; ++i) {
+      builder.add(mins[i], maxes[i]);
+    }
+    return builder.build(domainMin, domainMax);
+  }
+
+  /**
+   * @return The number of disjoint intervals in the set
+   */
+  public int rangeCount() {
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  public boolean contains(long value) {
+    // Find the last interval whose min is no greater than the value.
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (bounds[2 * middle] <= value) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return (high >= 0) && (value <= bounds[(2 * high) + 1]);
+  }
+
+  /**
+   * Adds every value from min through max. If min is greater than max, they are swapped, as {@link Range} does.
+   */
+  public void add(long min, long max) {
+    assign(union(single(min, max)));
+  }
+
+  public void add(Range<Long> range) {
+    add(range.getMin(), range.getMax());
+  }
+
+  /**
+   * Removes every value from min through max. If min is greater than max, they are swapped, as {@link Range} does.
+   */
+  public void remove(long min, long max) {
+    assign(intersect(single(min, max).complement()));
+  }
+
+  public void remove(Range<Long> range) {
+    remove(range.getMin(), range.getMax());
+  }
+
+  /**
+   * @return A new set holding every value in either set
+   */
+  public LongRangeSet union(LongRangeSet other) {
+    Builder builder = new Builder(count + other.count);
+    int i = 0;
+    int j = 0;
+    while ((i < count) || (j < other.count)) {
+      if ((j == other.count) || ((i < count) && (bounds[2 * i] <= other.bounds[2 * j]))) {
+        builder.add(bounds[2 * i], bounds[(2 * i) + 1]);
+        i++;
+      } else {
+        builder.add(other.bounds[2 * j], other.bounds[(2 * j) + 1]);
+        j++;
+      }
+    }
+    return builder.build(domainMin, domainMax);
+  }
+
+  /**
+   * @return A new set holding every value in both sets
+   */
+  public LongRangeSet intersect(LongRangeSet other) {
+    Builder builder = new Builder(count + other.count);
+    int i = 0;
+    int j = 0;
+    while ((i < count) && (j < other.count)) {
+      long min = Math.max(bounds[2 * i], other.bounds[2 * j]);
+      long max = Math.min(bounds[(2 * i) + 1], other.bounds[(2 * j) + 1]);
+      if (min <= max) {
+        builder.add(min, max);
+      }
+      if (bounds[(2 * i) + 1] < other.bounds[(2 * j) + 1]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return builder.build(domainMin, domainMax);
+  }
+
+  /**
+   * @return A new set holding every value of the domain that isn't in this set. The domain of a set made by the
+   * public constructor is every long.
+   */
+  public LongRangeSet complement() {
+    Builder builder = new Builder(count + 1);
+    long next = domainMin;
+    for (int i = 0; i < count; ++i) {
+      long min = bounds[2 * i];
+      long max = bounds[(2 * i) + 1];
+      if (min > next) {
+        builder.add(next, min - 1L);
+      }
+      if (max == domainMax) {
+        return builder.build(domainMin, domainMax);
+      }
+      next = max + 1L;
+    }
+    builder.add(next, domainMax);
+    return builder.build(domainMin, domainMax);
+  }
+
+  /**
+   * @return The intervals, in order
+   */
+  public List<Range<Long>> toRanges() {
+    List<Range<Long>> ranges = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      ranges.add(new Range<>(bounds[2 * i], bounds[(2 * i) + 1]));
+    }
+    return ranges;
+  }
+
+  long getMin(int index) {
+    return bounds[2 * index];
+  }
+
+  long getMax(int index) {
+    return bounds[(2 * index) + 1];
+  }
+
+  private LongRangeSet single(long min, long max) {
+    return new LongRangeSet(domainMin, domainMax, new long[] {Math.min(min, max), Math.max(min, max)}, 1);
+  }
+
+  private void assign(LongRangeSet other) {
+    bounds = other.bounds;
+    count = other.count;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof LongRangeSet)) {
+      return false;
+    }
+    LongRangeSet other = (LongRangeSet) obj;
+    if (other.count != count) {
+      return false;
+    }
+    for (int i = 0; i < 2 * count; ++i) {
+      if (bounds[i] != other.bounds[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 1;
+    for (int i = 0; i < 2 * count; ++i) {
+      hash = (31 * hash) + Long.hashCode(bounds[i]);
+    }
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return toRanges().toString();
+  }
+
+  /**
+   * Appends intervals in order of their mins, coalescing each one with the previous one if they overlap or touch.
+   */
+  private static final class Builder {
+    private long[] bounds;
+    private int count = 0;
+
+    private Builder(int capacity) {
+      bounds = new long[2 * Math.max(capacity, 1)];
+    }
+
+    private void add(long min, long max) {
+      if (count > 0) {
+        int last = (2 * count) - 1;
+        long lastMax = bounds[last];
+        // Written this way so lastMax + 1 can't overflow.
+        if ((lastMax == Long.MAX_VALUE) || (min <= lastMax + 1L)) {
+          if (max > lastMax) {
+            bounds[last] = max;
+          }
+          return;
+        }
+      }
+      if (2 * count == bounds.length) {
+        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+      }
+      bounds[2 * count] = min;
+      bounds[(2 * count) + 1] = max;
+      count++;
+    }
+
+    /**
+     * The bounds array was sized for the intervals before they were coalesced, so it's trimmed to fit, since the set
+     * keeps it.
+     */
+    private LongRangeSet build(long domainMin, long domainMax) {
+      long[] fitted = (bounds.length == (2 * count)) ? bounds : Arrays.copyOf(bounds, 2 * count);
+      return new LongRangeSet(domainMin, domainMax, fitted, count);
+    }
+  }
+}
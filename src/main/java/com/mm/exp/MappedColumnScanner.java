@@ -0,0 +1,301 @@
+package com.mm.exp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Computes the range of a binary file holding a single column of raw numbers. The file is memory-mapped in chunks,
+ * and each chunk is scanned through a typed buffer view, so the values are never copied into arrays or boxed. The
+ * chunks are scanned in parallel, then their results are combined.
+ * <p>
+ * Only a few chunks are mapped at a time. Each worker maps one chunk, scans it, and drops it before it maps the
+ * next, so the rest of the file is never mapped at once. (Java 8 can't unmap a buffer; the mapping goes away when
+ * the buffer is collected.) Since mapped reads block on I/O, the workers don't run on the common ForkJoinPool, but
+ * on a pool of their own, or on an Executor the caller supplies.
+ * <p>
+ * NaN values in floating-point columns are ignored, unless every value is NaN.
+ */
+final class MappedColumnScanner {
+  /**
+   * Default chunk size. This is a multiple of every value width.
+   */
+  static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+
+  /**
+   * Default number of chunks to map at once, which is also the number of workers.
+   */
+  static final int DEFAULT_MAX_MAPPED_CHUNKS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+  enum ColumnType {
+    INT(Integer.BYTES),
+    LONG(Long.BYTES),
+    FLOAT(Float.BYTES),
+    DOUBLE(Double.BYTES);
+
+    private final int width;
+
+    ColumnType(int width) {
+      this.width = width;
+    }
+  }
+
+  private final int chunkSize;
+  private final Executor executor;
+  private final int maxMappedChunks;
+
+  MappedColumnScanner() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * @param chunkSize The number of bytes to map at a time. Must be a positive multiple of 8.
+   */
+  MappedColumnScanner(int chunkSize) {
+    this(chunkSize, WorkerPool.EXECUTOR, DEFAULT_MAX_MAPPED_CHUNKS);
+  }
+
+  /**
+   * @param chunkSize The number of bytes to map at a time. Must be a positive multiple of 8.
+   * @param executor Runs the workers. It should not be the common ForkJoinPool, since the workers block on I/O.
+   * @param maxMappedChunks The number of workers, each of which maps one chunk at a time. Must be positive.
+   */
+  MappedColumnScanner(int chunkSize, Executor executor, int maxMappedChunks) {
+    if ((chunkSize <= 0) || ((chunkSize % Long.BYTES) != 0)) {
+      throw new IllegalArgumentException("Chunk size must be a positive multiple of 8: " + chunkSize);
+    }
+    if (maxMappedChunks <= 0) {
+      throw new IllegalArgumentException("Mapped chunk limit must be positive: " + maxMappedChunks);
+    }
+    this.chunkSize = chunkSize;
+    this.executor = executor;
+    this.maxMappedChunks = maxMappedChunks;
+  }
+
+  /**
+   * The default pool. Its daemon threads exit after a minute without work.
+   */
+  private static final class WorkerPool {
+    static final Executor EXECUTOR;
+
+    static {
+      AtomicInteger threadCount = new AtomicInteger();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(DEFAULT_MAX_MAPPED_CHUNKS, DEFAULT_MAX_MAPPED_CHUNKS,
+          60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "MappedColumnScanner-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+      pool.allowCoreThreadTimeOut(true);
+      EXECUTOR = pool;
+    }
+  }
+
+  /**
+   * Scans a column of ints or longs.
+   * @return A two-element array holding the min and the max
+   */
+  long[] scanIntegral(Path file, ColumnType type, ByteOrder order) throws IOException {
+    if ((type != ColumnType.INT) && (type != ColumnType.LONG)) {
+      throw new IllegalArgumentException(type.name());
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      int chunks = countChunks(channel.size(), type);
+      long[] mins = new long[chunks];
+      long[] maxes = new long[chunks];
+      forEachChunk(chunks, chunk -> {
+        ByteBuffer bytes = map(channel, chunk).order(order);
+        if (type == ColumnType.INT) {
+          scanInts(bytes.asIntBuffer(), chunk, mins, maxes);
+        } else {
+          scanLongs(bytes.asLongBuffer(), chunk, mins, maxes);
+        }
+      });
+      long min = mins[0];
+      long max = maxes[0];
+      for (int i = 1; i < chunks; ++i) {
+        if (mins[i] < min) {
+          min = mins[i];
+        }
+        if (maxes[i] > max) {
+          max = maxes[i];
+        }
+      }
+      return new long[] {min, max};
+    }
+  }
+
+  /**
+   * Scans a column of floats or doubles.
+   * @return A two-element array holding the min and the max
+   */
+  double[] scanFloatingPoint(Path file, ColumnType type, ByteOrder order) throws IOException {
+    if ((type != ColumnType.FLOAT) && (type != ColumnType.DOUBLE)) {
+      throw new IllegalArgumentException(type.name());
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      int chunks = countChunks(channel.size(), type);
+      double[] mins = new double[chunks];
+      double[] maxes = new double[chunks];
+      forEachChunk(chunks, chunk -> {
+        ByteBuffer bytes = map(channel, chunk).order(order);
+        if (type == ColumnType.FLOAT) {
+          scanFloats(bytes.asFloatBuffer(), chunk, mins, maxes);
+        } else {
+          scanDoubles(bytes.asDoubleBuffer(), chunk, mins, maxes);
+        }
+      });
+      // A chunk of nothing but NaNs reports NaN, which these comparisons skip, like the chunk scans do.
+      double min = Double.NaN;
+      double max = Double.NaN;
+      for (int i = 0; i < chunks; ++i) {
+        if ((mins[i] < min) || (min != min)) {
+          min = mins[i];
+        }
+        if ((maxes[i] > max) || (max != max)) {
+          max = maxes[i];
+        }
+      }
+      return new double[] {min, max};
+    }
+  }
+
+  private int countChunks(long size, ColumnType type) {
+    if (size == 0L) {
+      throw new IllegalStateException("Empty DataSet");
+    }
+    if ((size % type.width) != 0L) {
+      throw new IllegalArgumentException(
+          String.format("File size %d is not a multiple of the %s width %d", size, type, type.width));
+    }
+    long chunks = ((size - 1L) / chunkSize) + 1L;
+    if (chunks > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("File too large: " + size);
+    }
+    return (int) chunks;
+  }
+
+  private MappedByteBuffer map(FileChannel channel, int chunk) {
+    long position = (long) chunk * chunkSize;
+    try {
+      long length = Math.min(chunkSize, channel.size() - position);
+      return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Scans every chunk, with up to maxMappedChunks workers that each take the next unscanned chunk, until none are
+   * left.
+   */
+  private void forEachChunk(int chunks, IntConsumer scan) throws IOException {
+    AtomicInteger nextChunk = new AtomicInteger();
+    Runnable worker = () -> {
+      for (int chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement()) {
+        scan.accept(chunk);
+      }
+    };
+    CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(maxMappedChunks, chunks)];
+    for (int i = 0; i < workers.length; ++i) {
+      workers[i] = CompletableFuture.runAsync(worker, executor);
+    }
+    try {
+      CompletableFuture.allOf(workers).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw (cause instanceof RuntimeException) ? (RuntimeException) cause : e;
+    }
+  }
+
+  private static void scanInts(IntBuffer buffer, int chunk, long[] mins, long[] maxes) {
+    int limit = buffer.limit();
+    int min = buffer.get(0);
+    int max = min;
+    for (int i = 1; i < limit; ++i) {
+      int value = buffer.get(i);
+      if (value < min) {
+        min = value;
+      }
+      if (value > max) {
+        max = value;
+      }
+    }
+    mins[chunk] = min;
+    maxes[chunk] = max;
+  }
+
+  private static void scanLongs(LongBuffer buffer, int chunk, long[] mins, long[] maxes) {
+    int limit = buffer.limit();
+    long min = buffer.get(0);
+    long max = min;
+    for (int i = 1; i < limit; ++i) {
+      long value = buffer.get(i);
+      if (value < min) {
+        min = value;
+      }
+      if (value > max) {
+        max = value;
+      }
+    }
+    mins[chunk] = min;
+    maxes[chunk] = max;
+  }
+
+  private static void scanFloats(FloatBuffer buffer, int chunk, double[] mins, double[] maxes) {
+    int limit = buffer.limit();
+    float min = Float.NaN;
+    float max = Float.NaN;
+    for (int i = 0; i < limit; ++i) {
+      float value = buffer.get(i);
+      if ((value < min) || (min != min)) {
+        min = value;
+      }
+      if ((value > max) || (max != max)) {
+        max = value;
+      }
+    }
+    mins[chunk] = min;
+    maxes[chunk] = max;
+  }
+
+  private static void scanDoubles(DoubleBuffer buffer, int chunk, double[] mins, double[] maxes) {
+    int limit = buffer.limit();
+    double min = Double.NaN;
+    double max = Double.NaN;
+    for (int i = 0; i < limit; ++i) {
+      double value = buffer.get(i);
+      if ((value < min) || (min != min)) {
+        min = value;
+      }
+      if ((value > max) || (max != max)) {
+        max = value;
+      }
+    }
+    mins[chunk] = min;
+    maxes[chunk] = max;
+  }
+}
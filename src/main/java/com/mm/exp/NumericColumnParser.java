@@ -0,0 +1,376 @@
+package com.mm.exp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Parses numeric columns out of delimited text (CSV, TSV, or one value per line), and feeds the values to primitive
+ * consumers such as {@link RangeAccumulator}. The text is parsed one byte at a time into a primitive mantissa and
+ * exponent, so no String or Double gets created for each field. Since all parsing state carries over from one
+ * buffer to the next, a value may be split across reads.
+ * <p>
+ * A value is converted without allocating whenever the conversion is exact, which covers any value whose digits,
+ * read as an integer, are at most 2<sup>53</sup> (every value with up to 15 significant digits, and some with 16),
+ * and whose decimal exponent is between -22 and 22. Other values, along with NaN and Infinity, are converted by
+ * {@link Double#parseDouble(String)}, so they are parsed exactly, at the cost of a String.
+ * <p>
+ * Lines may end with \n, \r\n, or \r. Blank lines and empty fields are skipped, as are spaces and tabs around a
+ * value. Double quotes around a field are ignored, and a delimiter inside quotes does not end the field. A field in
+ * a selected column that isn't a number throws a NumberFormatException giving the line and column.
+ * <p>
+ * A parser may be reused, and may be used by several threads at once.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class NumericColumnParser {
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final int MAX_EXACT_EXPONENT = 22;
+  private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_EXPONENT + 1];
+
+  static {
+    double power = 1.0;
+    for (int i = 0; i <= MAX_EXACT_EXPONENT; ++i) {
+      POWERS_OF_TEN[i] = power;
+      power *= 10.0;
+    }
+  }
+
+  private final byte delimiter;
+  private final boolean skipHeader;
+  private final int[] columns;
+  private final int bufferSize;
+
+  /**
+   * @param delimiter The field delimiter, such as ',' or '\t'. This must be an ASCII character.
+   * @param skipHeader True if the first non-blank line holds column names.
+   * @param columns The zero-based indices of the columns to parse. Values in {@code columns[i]} go to the i-th
+   *                consumer passed to {@code parse()}.
+   */
+  public NumericColumnParser(char delimiter, boolean skipHeader, int... columns) {
+    this(delimiter, skipHeader, columns, DEFAULT_BUFFER_SIZE);
+  }
+
+  NumericColumnParser(char delimiter, boolean skipHeader, int[] columns, int bufferSize) {
+    if ((delimiter > 0x7F) || (delimiter == '\n') || (delimiter == '\r') || (delimiter == '"')) {
+      throw new IllegalArgumentException("Unsupported delimiter: " + delimiter);
+    }
+    if (columns.length == 0) {
+      throw new IllegalArgumentException("No columns selected");
+    }
+    for (int column : columns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Negative column: " + column);
+      }
+    }
+    this.delimiter = (byte) delimiter;
+    this.skipHeader = skipHeader;
+    this.bufferSize = bufferSize;
+    this.columns = columns.clone();
+  }
+
+  /**
+   * Creates a parser for text that holds a single value on each line.
+   * @param skipHeader True if the first non-blank line is a header.
+   * @return The parser
+   */
+  public static NumericColumnParser lines(boolean skipHeader) {
+    return new NumericColumnParser(',', skipHeader, 0);
+  }
+
+  public void parse(Path file, DoubleConsumer... consumers) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      parse(channel, consumers);
+    }
+  }
+
+  public void parse(ReadableByteChannel channel, DoubleConsumer... consumers) throws IOException {
+    Cursor cursor = new Cursor(consumers);
+    ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+    byte[] bytes = buffer.array();
+    while (channel.read(buffer) >= 0) {
+      cursor.scan(bytes, buffer.position());
+      buffer.clear();
+    }
+    cursor.finish();
+  }
+
+  public void parse(InputStream in, DoubleConsumer... consumers) throws IOException {
+    Cursor cursor = new Cursor(consumers);
+    byte[] bytes = new byte[bufferSize];
+    int count;
+    while ((count = in.read(bytes)) >= 0) {
+      cursor.scan(bytes, count);
+    }
+    cursor.finish();
+  }
+
+  /**
+   * Parses the selected columns, accumulating the range of each one.
+   * @param in The text
+   * @return One RangeAccumulator for each selected column, in the order the columns were given.
+   * @throws IOException If the text can't be read
+   */
+  public RangeAccumulator[] parseRanges(InputStream in) throws IOException {
+    RangeAccumulator[] accumulators = newAccumulators();
+    parse(in, accumulators);
+    return accumulators;
+  }
+
+  /**
+   * Parses the selected columns, accumulating the range of each one.
+   * @param file The text file
+   * @return One RangeAccumulator for each selected column, in the order the columns were given.
+   * @throws IOException If the file can't be read
+   */
+  public RangeAccumulator[] parseRanges(Path file) throws IOException {
+    RangeAccumulator[] accumulators = newAccumulators();
+    parse(file, accumulators);
+    return accumulators;
+  }
+
+  private RangeAccumulator[] newAccumulators() {
+    RangeAccumulator[] accumulators = new RangeAccumulator[columns.length];
+    for (int i = 0; i < accumulators.length; ++i) {
+      accumulators[i] = new RangeAccumulator();
+    }
+    return accumulators;
+  }
+
+  // Phases of a numeric field
+  private static final int START = 0;
+  private static final int SIGN = 1;
+  private static final int INTEGER = 2;
+  private static final int FRACTION = 3;
+  private static final int EXPONENT_START = 4;
+  private static final int EXPONENT_SIGN = 5;
+  private static final int EXPONENT = 6;
+
+  /**
+   * The state of a single parse. This carries over from one buffer to the next.
+   */
+  private final class Cursor {
+    private final DoubleConsumer[] consumerForColumn;
+    private long line = 1L;
+    private int column = 0;
+    private boolean lineStarted = false;
+    private boolean inHeader = skipHeader;
+    private boolean inQuotes = false;
+    private boolean afterCarriageReturn = false;
+
+    // The numeric field being parsed, if the current column is selected.
+    private DoubleConsumer consumer;
+    private int phase;
+    private boolean negative;
+    private long mantissa;
+    private int significantDigits;
+    private int decimalExponent;
+    private boolean negativeExponent;
+    private int exponent;
+    private boolean anyDigit;
+    private boolean afterValue;
+    private boolean slow;
+    // The raw text of the field, only needed for the slow path and error messages.
+    private byte[] text = new byte[32];
+    private int textLength;
+
+    private Cursor(DoubleConsumer[] consumers) {
+      if (consumers.length != columns.length) {
+        throw new IllegalArgumentException(
+            String.format("%d columns selected, but %d consumers given", columns.length, consumers.length));
+      }
+      int maxColumn = 0;
+      for (int column : columns) {
+        maxColumn = Math.max(maxColumn, column);
+      }
+      consumerForColumn = new DoubleConsumer[maxColumn + 1];
+      for (int i = 0; i < columns.length; ++i) {
+        if (consumerForColumn[columns[i]] != null) {
+          throw new IllegalArgumentException("Duplicate column: " + columns[i]);
+        }
+        consumerForColumn[columns[i]] = consumers[i];
+      }
+      startField();
+    }
+
+    private void scan(byte[] bytes, int length) {
+      for (int i = 0; i < length; ++i) {
+        byte b = bytes[i];
+        if ((b == '\n') || (b == '\r')) {
+          // The \n of a \r\n pair was already handled by the \r.
+          if (!afterCarriageReturn || (b == '\r')) {
+            endLine();
+          }
+          afterCarriageReturn = b == '\r';
+        } else {
+          afterCarriageReturn = false;
+          lineStarted = true;
+          if ((b == delimiter) && !inQuotes) {
+            endField();
+            column++;
+            startField();
+          } else if (b == '"') {
+            inQuotes = !inQuotes;
+          } else if (consumer != null) {
+            if ((b == ' ') || (b == '\t')) {
+              afterValue = textLength > 0;
+            } else {
+              accept(b);
+            }
+          }
+        }
+      }
+    }
+
+    private void finish() {
+      endLine();
+    }
+
+    private void endLine() {
+      if (lineStarted) {
+        endField();
+        inHeader = false;
+      }
+      lineStarted = false;
+      inQuotes = false;
+      column = 0;
+      line++;
+      startField();
+    }
+
+    private void startField() {
+      consumer = (inHeader || (column >= consumerForColumn.length)) ? null : consumerForColumn[column];
+      phase = START;
+      negative = false;
+      mantissa = 0L;
+      significantDigits = 0;
+      decimalExponent = 0;
+      negativeExponent = false;
+      exponent = 0;
+      anyDigit = false;
+      afterValue = false;
+      slow = false;
+      textLength = 0;
+    }
+
+    private void accept(byte b) {
+      if (afterValue) {
+        // A space inside the value. Keep it, so parseDouble() will reject the field.
+        afterValue = false;
+        slow = true;
+        append((byte) ' ');
+      }
+      append(b);
+      if (slow) {
+        return;
+      }
+      boolean isSign = (b == '-') || (b == '+');
+      if ((phase == START) && isSign) {
+        negative = b == '-';
+        phase = SIGN;
+        return;
+      }
+      if ((phase == EXPONENT_START) && isSign) {
+        negativeExponent = b == '-';
+        phase = EXPONENT_SIGN;
+        return;
+      }
+      boolean isDigit = (b >= '0') && (b <= '9');
+      switch (phase) {
+        case START:
+        case SIGN:
+        case INTEGER:
+          if (isDigit) {
+            phase = INTEGER;
+            addDigit(b - '0');
+          } else if (b == '.') {
+            phase = FRACTION;
+          } else {
+            startExponent(b);
+          }
+          return;
+        case FRACTION:
+          if (isDigit) {
+            addDigit(b - '0');
+            decimalExponent--;
+          } else {
+            startExponent(b);
+          }
+          return;
+        case EXPONENT_START:
+        case EXPONENT_SIGN:
+        case EXPONENT:
+          if (isDigit && (exponent < 10_000)) {
+            phase = EXPONENT;
+            exponent = (exponent * 10) + (b - '0');
+          } else {
+            slow = true;
+          }
+          return;
+        default:
+          throw new AssertionError(phase);
+      }
+    }
+
+    private void append(byte b) {
+      if (textLength == text.length) {
+        text = Arrays.copyOf(text, text.length * 2);
+      }
+      text[textLength++] = b;
+    }
+
+    private void startExponent(byte b) {
+      if (((b == 'e') || (b == 'E')) && anyDigit) {
+        phase = EXPONENT_START;
+      } else {
+        slow = true;
+      }
+    }
+
+    private void addDigit(int digit) {
+      anyDigit = true;
+      if ((mantissa == 0L) && (digit == 0)) {
+        return; // Leading zeros aren't significant.
+      }
+      if (significantDigits == 18) {
+        slow = true;
+        return;
+      }
+      mantissa = (mantissa * 10L) + digit;
+      significantDigits++;
+    }
+
+    private void endField() {
+      if ((consumer == null) || (textLength == 0)) {
+        return;
+      }
+      int power = decimalExponent + (negativeExponent ? -exponent : exponent);
+      if (!slow && anyDigit && ((phase == INTEGER) || (phase == FRACTION) || (phase == EXPONENT))) {
+        if (mantissa == 0L) {
+          consumer.accept(negative ? -0.0 : 0.0);
+          return;
+        }
+        if ((mantissa <= MAX_EXACT_MANTISSA) && (Math.abs(power) <= MAX_EXACT_EXPONENT)) {
+          double value = (double) mantissa;
+          value = (power < 0) ? (value / POWERS_OF_TEN[-power]) : (value * POWERS_OF_TEN[power]);
+          consumer.accept(negative ? -value : value);
+          return;
+        }
+      }
+      String field = new String(text, 0, textLength, StandardCharsets.ISO_8859_1);
+      try {
+        consumer.accept(Double.parseDouble(field));
+      } catch (NumberFormatException e) {
+        //noinspection HardCodedStringLiteral
+        throw new NumberFormatException(String.format("Line %d, column %d: \"%s\"", line, column, field));
+      }
+    }
+  }
+}
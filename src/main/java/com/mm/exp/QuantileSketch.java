@@ -0,0 +1,239 @@
+package com.mm.exp;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Estimates quantiles of a stream of doubles in bounded memory. Each value is counted in a bucket whose bounds grow
+ * geometrically, so every estimate is within a fixed relative error of a value of the requested rank. Two
+ * sketches with the same accuracy merge exactly, by adding their bucket counts, so each thread or partition may
+ * use its own sketch.
+ * <p>
+ * Positive and negative values are counted in separate sets of buckets, and values very close to zero are counted
+ * as zero. Each set keeps at most {@code maxBuckets} buckets. If the values span more than that, the buckets for
+ * the smallest magnitudes get folded together, so only the quantiles nearest zero lose accuracy. With the default
+ * accuracy of 1% and 2048 buckets, that only happens if the magnitudes span more than 17 orders of magnitude.
+ * <p>
+ * NaN values are ignored. This class is not thread-safe.
+ * <p>
+ * This is the DDSketch algorithm (Masson, Rim and Lee, VLDB 2019).
+ */
+@SuppressWarnings("WeakerAccess")
+public final class QuantileSketch implements DoubleConsumer {
+  public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+  public static final int DEFAULT_MAX_BUCKETS = 2048;
+
+  private final double relativeAccuracy;
+  private final double gamma;
+  private final double logGamma;
+  private final double minIndexable;
+  private final Buckets positive;
+  private final Buckets negative;
+  private long zeroCount = 0L;
+  private long count = 0L;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public QuantileSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BUCKETS);
+  }
+
+  /**
+   * @param relativeAccuracy The relative error of each estimate, such as 0.01 for 1%
+   * @param maxBuckets The maximum number of buckets for each sign
+   */
+  public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+    if ((relativeAccuracy <= 0.0) || (relativeAccuracy >= 1.0)) {
+      throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+    }
+    if (maxBuckets < 2) {
+      throw new IllegalArgumentException("At least two buckets are needed: " + maxBuckets);
+    }
+    this.relativeAccuracy = relativeAccuracy;
+    gamma = (1.0 + relativeAccuracy) / (1.0 - relativeAccuracy);
+    logGamma = Math.log(gamma);
+    minIndexable = Double.MIN_NORMAL * gamma;
+    positive = new Buckets(maxBuckets);
+    negative = new Buckets(maxBuckets);
+  }
+
+  @Override
+  public void accept(double value) {
+    if (value != value) {
+      return;
+    }
+    if (value > minIndexable) {
+      positive.add(index(value), 1L);
+    } else if (value < -minIndexable) {
+      negative.add(index(-value), 1L);
+    } else {
+      zeroCount++;
+    }
+    count++;
+    if (value < min) {
+      min = value;
+    }
+    if (value > max) {
+      max = value;
+    }
+  }
+
+  private int index(double magnitude) {
+    return (int) Math.ceil(Math.log(Math.min(magnitude, Double.MAX_VALUE)) / logGamma);
+  }
+
+  /**
+   * @return The value in the middle of bucket {@code index}, which is within the relative accuracy of every value
+   * in the bucket
+   */
+  private double value(int index) {
+    return (2.0 * Math.exp(index * logGamma)) / (gamma + 1.0);
+  }
+
+  /**
+   * Adds the values counted by another sketch to this one.
+   * @param other A sketch with the same relative accuracy
+   */
+  public void merge(QuantileSketch other) {
+    checkMergeable(other);
+    positive.merge(other.positive);
+    negative.merge(other.negative);
+    zeroCount += other.zeroCount;
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the other sketch can't be merged into this one
+   */
+  void checkMergeable(QuantileSketch other) {
+    if (other.relativeAccuracy != relativeAccuracy) {
+      throw new IllegalArgumentException("Can't merge sketches with different accuracies");
+    }
+  }
+
+  public long getCount() { return count; }
+
+  public double getRelativeAccuracy() { return relativeAccuracy; }
+
+  /**
+   * Estimates the value at a quantile.
+   * @param quantile The quantile, from 0 through 1, such as 0.99 for the 99th percentile
+   * @return A value within the relative accuracy of the value with that rank
+   * @throws IllegalStateException if no values have been counted
+   */
+  public double getQuantile(double quantile) {
+    if ((quantile < 0.0) || (quantile > 1.0)) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+    }
+    if (count == 0L) {
+      throw new IllegalStateException("Empty DataSet");
+    }
+    long rank = (long) (quantile * (count - 1L));
+    double estimate;
+    if (rank < negative.total) {
+      estimate = -value(negative.indexOfRankFromTop(rank));
+    } else if (rank < negative.total + zeroCount) {
+      estimate = 0.0;
+    } else {
+      estimate = value(positive.indexOfRank(rank - negative.total - zeroCount));
+    }
+    // The exact extremes are known, so never estimate beyond them.
+    return Math.max(min, Math.min(max, estimate));
+  }
+
+  /**
+   * A contiguous run of bucket counts, from minIndex through maxIndex. counts[0] is the count of bucket offset.
+   */
+  private static final class Buckets {
+    private final int maxBuckets;
+    private long[] counts = new long[0];
+    private int offset = 0;
+    private int minIndex = Integer.MAX_VALUE;
+    private int maxIndex = Integer.MIN_VALUE;
+    private long total = 0L;
+
+    private Buckets(int maxBuckets) {
+      this.maxBuckets = maxBuckets;
+    }
+
+    private void add(int index, long count) {
+      if ((index < minIndex) || (index > maxIndex)) {
+        index = extend(index);
+      }
+      counts[index - offset] += count;
+      total += count;
+    }
+
+    /**
+     * Makes room for the index, folding the lowest buckets together if there would be too many.
+     * @return The index to count the value in, which differs from the given index if that bucket was folded away
+     */
+    private int extend(int index) {
+      int newMin = (total == 0L) ? index : Math.min(minIndex, index);
+      int newMax = (total == 0L) ? index : Math.max(maxIndex, index);
+      if ((long) newMax - newMin >= maxBuckets) {
+        newMin = newMax - maxBuckets + 1;
+      }
+      if ((newMin < offset) || (newMax >= offset + counts.length)) {
+        int span = newMax - newMin + 1;
+        int length = Math.min(maxBuckets, Math.max(span + 32, 2 * counts.length));
+        int newOffset = newMin - ((length - span) / 2);
+        long[] newCounts = new long[length];
+        for (int i = minIndex; (total > 0L) && (i <= maxIndex); ++i) {
+          newCounts[Math.max(i, newMin) - newOffset] += counts[i - offset];
+        }
+        counts = newCounts;
+        offset = newOffset;
+      } else if (newMin > minIndex) {
+        // Everything fits in place, but the lowest buckets fold into newMin.
+        long folded = 0L;
+        for (int i = minIndex; i < newMin; ++i) {
+          folded += counts[i - offset];
+          counts[i - offset] = 0L;
+        }
+        counts[newMin - offset] += folded;
+      }
+      minIndex = newMin;
+      maxIndex = newMax;
+      return Math.max(index, newMin);
+    }
+
+    private void merge(Buckets other) {
+      for (int i = other.minIndex; (other.total > 0L) && (i <= other.maxIndex); ++i) {
+        long count = other.counts[i - other.offset];
+        if (count != 0L) {
+          add(i, count);
+        }
+      }
+    }
+
+    /**
+     * @return The index of the bucket holding the value with the given rank, counting up from the lowest bucket
+     */
+    private int indexOfRank(long rank) {
+      long seen = 0L;
+      for (int i = minIndex; i < maxIndex; ++i) {
+        seen += counts[i - offset];
+        if (seen > rank) {
+          return i;
+        }
+      }
+      return maxIndex;
+    }
+
+    /**
+     * @return The index of the bucket holding the value with the given rank, counting down from the highest bucket
+     */
+    private int indexOfRankFromTop(long rank) {
+      long seen = 0L;
+      for (int i = maxIndex; i > minIndex; --i) {
+        seen += counts[i - offset];
+        if (seen > rank) {
+          return i;
+        }
+      }
+      return minIndex;
+    }
+  }
+}
@@ -1,5 +1,9 @@
 package com.mm.exp;
 
+import com.mm.exp.MappedColumnScanner.ColumnType;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -18,7 +22,7 @@ public class Range<X extends Number> {
   private final X max;
   
   public Range(X min, X max) {
-    if (max.doubleValue() > min.doubleValue()) {
+    if (isGreater(max, min)) {
       this.min = min;
       this.max = max;
     } else {
@@ -27,6 +31,18 @@ public class Range<X extends Number> {
     }
   }
 
+  /**
+   * Compares by value. Two values of the same Comparable class are compared directly, since converting large longs
+   * to double would lose precision. Anything else is compared by its double value.
+   */
+  @SuppressWarnings("unchecked")
+  private static <X extends Number> boolean isGreater(X x, X y) {
+    if ((x.getClass() == y.getClass()) && (x instanceof Comparable)) {
+      return ((Comparable<X>) x).compareTo(y) > 0;
+    }
+    return x.doubleValue() > y.doubleValue();
+  }
+
   /**
    * Private constructor allows member methods to skip checking the order of the parameters.
    * @param min Minimum value
@@ -86,10 +102,88 @@ public class Range<X extends Number> {
     return getRange(((x, y) -> x > y), (x, y) -> x < y, data);
   }
 
+  /**
+   * Primitive version of {@link #getIntegerRange(Iterable)}. Scans the array without boxing, so the only allocation
+   * is the returned Range.
+   * @param data The data. May not be empty.
+   * @return The range of the data
+   */
   public static Range<Integer> getIntegerRange(int[] data) {
-    return getRange(((x, y) -> x > y), (x, y) -> x < y, getIterator(data));
+    return new Range<>(getMin(data), getMax(data), true);
+  }
+
+  /**
+   * Primitive version of {@link #getLongRange(Iterable)}. Scans the array without boxing, so the only allocation
+   * is the returned Range.
+   * @param data The data. May not be empty.
+   * @return The range of the data
+   */
+  public static Range<Long> getLongRange(long[] data) {
+    return new Range<>(getMin(data), getMax(data), true);
+  }
+
+  /**
+   * Primitive version of {@link #getDoubleRange(Iterable)}. Scans the array without boxing, so the only allocation
+   * is the returned Range.
+   * @param data The data. May not be empty.
+   * @return The range of the data
+   */
+  public static Range<Double> getDoubleRange(double[] data) {
+    return new Range<>(getMin(data), getMax(data), true);
   }
   
+  /**
+   * Computes the range of a binary file of raw ints, without reading it into memory. The file is memory-mapped and
+   * scanned in parallel chunks.
+   * @param file A file holding nothing but 4-byte ints
+   * @param order The byte order of the file
+   * @return The range of the data
+   * @throws IOException If the file can't be read
+   */
+  public static Range<Integer> getIntegerRange(Path file, ByteOrder order) throws IOException {
+    long[] minMax = new MappedColumnScanner().scanIntegral(file, ColumnType.INT, order);
+    return new Range<>((int) minMax[0], (int) minMax[1], true);
+  }
+
+  /**
+   * Computes the range of a binary file of raw longs, without reading it into memory. The file is memory-mapped and
+   * scanned in parallel chunks.
+   * @param file A file holding nothing but 8-byte longs
+   * @param order The byte order of the file
+   * @return The range of the data
+   * @throws IOException If the file can't be read
+   */
+  public static Range<Long> getLongRange(Path file, ByteOrder order) throws IOException {
+    long[] minMax = new MappedColumnScanner().scanIntegral(file, ColumnType.LONG, order);
+    return new Range<>(minMax[0], minMax[1], true);
+  }
+
+  /**
+   * Computes the range of a binary file of raw floats, without reading it into memory. The file is memory-mapped 
+   * and scanned in parallel chunks. NaN values are ignored, unless every value is NaN.
+   * @param file A file holding nothing but 4-byte floats
+   * @param order The byte order of the file
+   * @return The range of the data
+   * @throws IOException If the file can't be read
+   */
+  public static Range<Float> getFloatRange(Path file, ByteOrder order) throws IOException {
+    double[] minMax = new MappedColumnScanner().scanFloatingPoint(file, ColumnType.FLOAT, order);
+    return new Range<>((float) minMax[0], (float) minMax[1], true);
+  }
+
+  /**
+   * Computes the range of a binary file of raw doubles, without reading it into memory. The file is memory-mapped 
+   * and scanned in parallel chunks. NaN values are ignored, unless every value is NaN.
+   * @param file A file holding nothing but 8-byte doubles
+   * @param order The byte order of the file
+   * @return The range of the data
+   * @throws IOException If the file can't be read
+   */
+  public static Range<Double> getDoubleRange(Path file, ByteOrder order) throws IOException {
+    double[] minMax = new MappedColumnScanner().scanFloatingPoint(file, ColumnType.DOUBLE, order);
+    return new Range<>(minMax[0], minMax[1], true);
+  }
+
   public static <N extends Number & Comparable<N>> Range<N> getRange(Iterable<N> data) {
     return getRange(((x, y) -> x.compareTo(y) > 0), (x, y) -> x.compareTo(y) < 0, data);
   }
@@ -112,24 +206,6 @@ public class Range<X extends Number> {
     return new Range<>(min, max, true);
   }
 
-  private static Iterator<Integer> getIterator(final int[] data) {
-    return new Iterator<Integer>() {
-      private int index = 0;
-      @Override
-      public boolean hasNext() {
-        return index >= data.length;
-      }
-
-      @Override
-      public Integer next() {
-        if (hasNext()) {
-          return data[index++];
-        }
-        throw new NoSuchElementException("Index " + index);
-      }
-    };
-  }
-
   private static <N extends Number> Range<N> getRange(
       final BiFunction<N, N, Boolean> isGreater,
       final BiFunction<N, N, Boolean> isLess,
@@ -179,6 +255,23 @@ public class Range<X extends Number> {
     };
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof Range)) {
+      return false;
+    }
+    Range<?> other = (Range<?>) obj;
+    return min.equals(other.min) && max.equals(other.max);
+  }
+
+  @Override
+  public int hashCode() {
+    return (31 * min.hashCode()) + max.hashCode();
+  }
+
   @Override
   public String toString() {
     //noinspection HardCodedStringLiteral
@@ -214,4 +307,56 @@ public class Range<X extends Number> {
     }
     return min;
   }
+
+  public static int getMax(int[] data) {
+    if (data.length == 0) {
+      throw new IllegalStateException("Empty Array");
+    }
+    return RangeKernels.max(data);
+  }
+
+  public static int getMin(int[] data) {
+    if (data.length == 0) {
+      throw new IllegalStateException("Empty Array");
+    }
+    return RangeKernels.min(data);
+  }
+
+  public static long getMax(long[] data) {
+    if (data.length == 0) {
+      throw new IllegalStateException("Empty Array");
+    }
+    return RangeKernels.max(data);
+  }
+
+  public static long getMin(long[] data) {
+    if (data.length == 0) {
+      throw new IllegalStateException("Empty Array");
+    }
+    return RangeKernels.min(data);
+  }
+
+  /**
+   * Returns the largest value in the array. NaN values are ignored, unless every value is NaN.
+   * @param data The data. May not be empty.
+   * @return The largest value
+   */
+  public static double getMax(double[] data) {
+    if (data.length == 0) {
+      throw new IllegalStateException("Empty Array");
+    }
+    return RangeKernels.max(data);
+  }
+
+  /**
+   * Returns the smallest value in the array. NaN values are ignored, unless every value is NaN.
+   * @param data The data. May not be empty.
+   * @return The smallest value
+   */
+  public static double getMin(double[] data) {
+    if (data.length == 0) {
+      throw new IllegalStateException("Empty Array");
+    }
+    return RangeKernels.min(data);
+  }
 }
@@ -0,0 +1,87 @@
+package com.mm.exp;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Accumulates the range of a stream of primitive values, one value at a time, without boxing. Accumulators of
+ * separate parts of the data may be merged, so each thread or partition can use its own. NaN values are ignored.
+ * <p>
+ * This class is not thread-safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class RangeAccumulator implements DoubleConsumer {
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+  private long count = 0L;
+
+  @Override
+  public void accept(double value) {
+    if (value != value) {
+      return;
+    }
+    if (value < min) {
+      min = value;
+    }
+    if (value > max) {
+      max = value;
+    }
+    count++;
+  }
+
+  /**
+   * Adds the values accumulated by another accumulator to this one.
+   * @param other The other accumulator
+   */
+  public void merge(RangeAccumulator other) {
+    if (other.min < min) {
+      min = other.min;
+    }
+    if (other.max > max) {
+      max = other.max;
+    }
+    count += other.count;
+  }
+
+  /**
+   * @return The number of values accumulated, not counting NaNs
+   */
+  public long getCount() { return count; }
+
+  /**
+   * @return The smallest value
+   * @throws IllegalStateException if no values have been accumulated
+   */
+  public double getMin() {
+    checkNotEmpty();
+    return min;
+  }
+
+  /**
+   * @return The largest value
+   * @throws IllegalStateException if no values have been accumulated
+   */
+  public double getMax() {
+    checkNotEmpty();
+    return max;
+  }
+
+  /**
+   * @return The range of the values
+   * @throws IllegalStateException if no values have been accumulated
+   */
+  public Range<Double> toRange() {
+    return new Range<>(getMin(), getMax());
+  }
+
+  private void checkNotEmpty() {
+    if (count == 0L) {
+      throw new IllegalStateException("Empty DataSet");
+    }
+  }
+
+  @Override
+  public String toString() {
+    //noinspection HardCodedStringLiteral
+    return (count == 0L) ? "{}" : String.format("{%s - %s}", min, max);
+  }
+}
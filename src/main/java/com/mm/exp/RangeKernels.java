@@ -0,0 +1,77 @@
+package com.mm.exp;
+
+/**
+ * The loops that find the min and max of primitive arrays, for {@link Range}. The arrays are never empty.
+ * <p>
+ * This is the Java 8 version. The jar also holds a version for Java 17 and later, compiled from src/main/java17,
+ * which newer runtimes load in place of this one. Any change here must be made there too, with the same results.
+ */
+final class RangeKernels {
+  private RangeKernels() { }
+
+  static int max(int[] data) {
+    int max = data[0];
+    for (int i = 1; i < data.length; ++i) {
+      if (data[i] > max) {
+        max = data[i];
+      }
+    }
+    return max;
+  }
+
+  static int min(int[] data) {
+    int min = data[0];
+    for (int i = 1; i < data.length; ++i) {
+      if (data[i] < min) {
+        min = data[i];
+      }
+    }
+    return min;
+  }
+
+  static long max(long[] data) {
+    long max = data[0];
+    for (int i = 1; i < data.length; ++i) {
+      if (data[i] > max) {
+        max = data[i];
+      }
+    }
+    return max;
+  }
+
+  static long min(long[] data) {
+    long min = data[0];
+    for (int i = 1; i < data.length; ++i) {
+      if (data[i] < min) {
+        min = data[i];
+      }
+    }
+    return min;
+  }
+
+  /**
+   * NaN values are ignored, unless every value is NaN. Of a zero and a negative zero, whichever comes first wins.
+   */
+  static double max(double[] data) {
+    double max = Double.NaN;
+    for (double value : data) {
+      if (value > max || max != max) {
+        max = value;
+      }
+    }
+    return max;
+  }
+
+  /**
+   * NaN values are ignored, unless every value is NaN. Of a zero and a negative zero, whichever comes first wins.
+   */
+  static double min(double[] data) {
+    double min = Double.NaN;
+    for (double value : data) {
+      if (value < min || min != min) {
+        min = value;
+      }
+    }
+    return min;
+  }
+}
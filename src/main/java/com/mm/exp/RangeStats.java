@@ -0,0 +1,200 @@
+package com.mm.exp;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * The range of a data set, along with its count, sum, mean, variance, and estimated quantiles, all computed in a
+ * single pass. The mean and variance are updated with Welford's method, which stays accurate even when the variance
+ * is small compared to the mean. The quantiles come from a {@link QuantileSketch}, so they take bounded memory.
+ * <p>
+ * RangeStats of separate parts of the data may be merged, giving the same result as a single pass over all of it,
+ * apart from rounding. So each thread or partition can compute its own, as {@link #ofParallel(double[])} does.
+ * <p>
+ * NaN values are ignored. The values of long and int data are converted to double, so longs beyond 2^53 lose
+ * precision. This class is not thread-safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class RangeStats implements DoubleConsumer {
+  private long count = 0L;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+  private double sum = 0.0;
+  private double mean = 0.0;
+  private double sumOfSquaredDeviations = 0.0;
+  private final QuantileSketch sketch;
+
+  public RangeStats() {
+    sketch = new QuantileSketch();
+  }
+
+  /**
+   * @param relativeAccuracy The relative accuracy of the quantile estimates
+   * @see QuantileSketch#QuantileSketch(double, int)
+   */
+  public RangeStats(double relativeAccuracy) {
+    sketch = new QuantileSketch(relativeAccuracy, QuantileSketch.DEFAULT_MAX_BUCKETS);
+  }
+
+  public static RangeStats of(double[] data) {
+    RangeStats stats = new RangeStats();
+    for (double value : data) {
+      stats.accept(value);
+    }
+    return stats;
+  }
+
+  public static RangeStats of(long[] data) {
+    RangeStats stats = new RangeStats();
+    for (long value : data) {
+      stats.accept(value);
+    }
+    return stats;
+  }
+
+  public static RangeStats of(int[] data) {
+    RangeStats stats = new RangeStats();
+    for (int value : data) {
+      stats.accept(value);
+    }
+    return stats;
+  }
+
+  public static RangeStats of(Iterable<? extends Number> data) {
+    RangeStats stats = new RangeStats();
+    for (Number value : data) {
+      stats.accept(value.doubleValue());
+    }
+    return stats;
+  }
+
+  /**
+   * Computes the stats of the parts of the array in parallel, then merges them.
+   * @param data The data
+   * @return The stats
+   */
+  public static RangeStats ofParallel(double[] data) {
+    return Arrays.stream(data).parallel().collect(RangeStats::new, RangeStats::accept, RangeStats::merge);
+  }
+
+  @Override
+  public void accept(double value) {
+    if (value != value) {
+      return;
+    }
+    count++;
+    if (value < min) {
+      min = value;
+    }
+    if (value > max) {
+      max = value;
+    }
+    sum += value;
+    double delta = value - mean;
+    mean += delta / count;
+    sumOfSquaredDeviations += delta * (value - mean);
+    sketch.accept(value);
+  }
+
+  /**
+   * Adds the values of another RangeStats to this one, using the pairwise update of Chan, Golub and LeVeque.
+   * @param other The stats of some other values. Its quantiles must have the same relative accuracy.
+   * @throws IllegalArgumentException if the quantiles have a different relative accuracy
+   */
+  public void merge(RangeStats other) {
+    // Check before changing anything, so a rejected merge leaves these stats as they were.
+    sketch.checkMergeable(other.sketch);
+    if (other.count == 0L) {
+      return;
+    }
+    long total = count + other.count;
+    double delta = other.mean - mean;
+    mean += delta * ((double) other.count / total);
+    sumOfSquaredDeviations += other.sumOfSquaredDeviations + (delta * delta * ((double) count * other.count / total));
+    count = total;
+    sum += other.sum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    sketch.merge(other.sketch);
+  }
+
+  /**
+   * @return The number of values, not counting NaNs
+   */
+  public long getCount() { return count; }
+
+  public double getSum() { return sum; }
+
+  public double getMin() {
+    checkNotEmpty();
+    return min;
+  }
+
+  public double getMax() {
+    checkNotEmpty();
+    return max;
+  }
+
+  public double getMean() {
+    checkNotEmpty();
+    return mean;
+  }
+
+  /**
+   * @return The population variance, which divides by the count
+   */
+  public double getVariance() {
+    checkNotEmpty();
+    return sumOfSquaredDeviations / count;
+  }
+
+  /**
+   * @return The sample variance, which divides by one less than the count
+   */
+  public double getSampleVariance() {
+    if (count < 2L) {
+      throw new IllegalStateException("Sample variance needs at least two values");
+    }
+    return sumOfSquaredDeviations / (count - 1L);
+  }
+
+  /**
+   * @return The population standard deviation
+   */
+  public double getStandardDeviation() {
+    return Math.sqrt(getVariance());
+  }
+
+  /**
+   * Estimates the value at a quantile.
+   * @param quantile The quantile, from 0 through 1
+   * @return An estimate within the relative accuracy of the sketch
+   * @see QuantileSketch#getQuantile(double)
+   */
+  public double getQuantile(double quantile) {
+    return sketch.getQuantile(quantile);
+  }
+
+  public double getP50() { return getQuantile(0.5); }
+
+  public double getP99() { return getQuantile(0.99); }
+
+  public double getP999() { return getQuantile(0.999); }
+
+  public Range<Double> toRange() {
+    return new Range<>(getMin(), getMax());
+  }
+
+  private void checkNotEmpty() {
+    if (count == 0L) {
+      throw new IllegalStateException("Empty DataSet");
+    }
+  }
+
+  @Override
+  public String toString() {
+    //noinspection HardCodedStringLiteral
+    return (count == 0L) ? "{}" : String.format("{%s - %s, count=%d, mean=%s, sd=%s, p50=%s, p99=%s}",
+        min, max, count, mean, getStandardDeviation(), getP50(), getP99());
+  }
+}
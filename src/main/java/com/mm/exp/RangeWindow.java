@@ -0,0 +1,192 @@
+package com.mm.exp;
+
+/**
+ * Tracks the minimum and maximum of the most recent values of a stream. The window holds either the last N values,
+ * or the values that arrived within the last T time units, whichever is smaller.
+ * <p>
+ * The min and max are each kept in a monotonic deque of sample positions, so each update takes amortized constant
+ * time, however large the window. All state lives in primitive ring buffers allocated up front, so adding a value
+ * never allocates. Only {@link #current()} creates an object, for the returned Range.
+ * <p>
+ * NaN values are ignored. This class is not thread-safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class RangeWindow {
+  private final int capacity;
+  private final long duration;
+
+  // Ring buffer of samples, indexed by sequence number modulo capacity.
+  private final double[] values;
+  private final long[] times;
+  private long head = 0; // sequence number of the oldest sample in the window
+  private long tail = 0; // sequence number of the next sample
+
+  // Monotonic deques of sequence numbers. The values at the min deque's positions increase from front to back,
+  // and the values at the max deque's positions decrease, so the front of each holds the current extreme.
+  private final long[] minQueue;
+  private final long[] maxQueue;
+  private long minFront = 0;
+  private long minBack = 0;
+  private long maxFront = 0;
+  private long maxBack = 0;
+
+  private RangeWindow(int capacity, long duration) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    if (duration < 1) {
+      throw new IllegalArgumentException("Duration must be positive: " + duration);
+    }
+    this.capacity = capacity;
+    this.duration = duration;
+    values = new double[capacity];
+    times = new long[capacity];
+    minQueue = new long[capacity];
+    maxQueue = new long[capacity];
+  }
+
+  /**
+   * Creates a window over the last {@code count} values.
+   * @param count The number of values in the window
+   * @return A RangeWindow
+   */
+  public static RangeWindow ofCount(int count) {
+    return new RangeWindow(count, Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a window over the values added within the last {@code duration} time units. A value added at time t
+   * stays in the window until the time reaches {@code t + duration}. If more than {@code capacity} values arrive
+   * within that time, the oldest values are dropped early.
+   * @param duration The length of the window, in whatever units the caller uses for time
+   * @param capacity The maximum number of values in the window
+   * @return A RangeWindow
+   */
+  public static RangeWindow ofDuration(long duration, int capacity) {
+    return new RangeWindow(capacity, duration);
+  }
+
+  /**
+   * Adds a value to a count-based window. On a time-based window, use {@link #add(long, double)} instead.
+   * @param value The value
+   */
+  public void add(double value) {
+    add(0L, value);
+  }
+
+  /**
+   * Adds a value, and drops any values that have expired at the given time.
+   * @param time The time of the value. This must never be less than the time of the previous value.
+   * @param value The value
+   */
+  public void add(long time, double value) {
+    if ((tail > head) && (time < times[index(tail - 1)])) {
+      throw new IllegalArgumentException("Time went backwards: " + time);
+    }
+    expire(time);
+    if (value != value) {
+      return;
+    }
+    if (tail - head == capacity) {
+      evictOldest();
+    }
+    long sequence = tail++;
+    values[index(sequence)] = value;
+    times[index(sequence)] = time;
+
+    while ((minBack > minFront) && (values[index(minQueue[index(minBack - 1)])] >= value)) {
+      minBack--;
+    }
+    minQueue[index(minBack++)] = sequence;
+    while ((maxBack > maxFront) && (values[index(maxQueue[index(maxBack - 1)])] <= value)) {
+      maxBack--;
+    }
+    maxQueue[index(maxBack++)] = sequence;
+  }
+
+  /**
+   * Drops the values that have expired at the given time. This lets a time-based window shrink when no new values
+   * are arriving.
+   * @param now The current time
+   */
+  public void expire(long now) {
+    if (duration == Long.MAX_VALUE) {
+      return;
+    }
+    while ((tail > head) && (now - times[index(head)] >= duration)) {
+      evictOldest();
+    }
+  }
+
+  private void evictOldest() {
+    long oldest = head++;
+    if (minQueue[index(minFront)] == oldest) {
+      minFront++;
+    }
+    if (maxQueue[index(maxFront)] == oldest) {
+      maxFront++;
+    }
+  }
+
+  private int index(long sequence) {
+    return (int) (sequence % capacity);
+  }
+
+  public boolean isEmpty() {
+    return tail == head;
+  }
+
+  /**
+   * @return The number of values currently in the window
+   */
+  public int size() {
+    return (int) (tail - head);
+  }
+
+  /**
+   * @return The smallest value in the window
+   * @throws IllegalStateException if the window is empty
+   */
+  public double getMin() {
+    checkNotEmpty();
+    return values[index(minQueue[index(minFront)])];
+  }
+
+  /**
+   * @return The largest value in the window
+   * @throws IllegalStateException if the window is empty
+   */
+  public double getMax() {
+    checkNotEmpty();
+    return values[index(maxQueue[index(maxFront)])];
+  }
+
+  /**
+   * @return The range of the values in the window
+   * @throws IllegalStateException if the window is empty
+   */
+  public Range<Double> current() {
+    return new Range<>(getMin(), getMax());
+  }
+
+  /**
+   * Removes all values from the window.
+   */
+  public void clear() {
+    head = tail;
+    minFront = minBack;
+    maxFront = maxBack;
+  }
+
+  private void checkNotEmpty() {
+    if (isEmpty()) {
+      throw new IllegalStateException("Empty Window");
+    }
+  }
+
+  @Override
+  public String toString() {
+    //noinspection HardCodedStringLiteral
+    return isEmpty() ? "{}" : String.format("{%s - %s}", getMin(), getMax());
+  }
+}
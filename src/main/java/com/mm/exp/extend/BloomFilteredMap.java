@@ -0,0 +1,308 @@
+package com.mm.exp.extend;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Fail-fast SafeMap decorator that keeps a Bloom filter of the keys of the map it wraps. A lookup of a key the
+ * filter has never seen returns right away, without touching the wrapped map, which pays off when the wrapped map
+ * is slow and most lookups miss. Other lookups, and all writes, go on to the wrapped map.
+ * <p>
+ * A Bloom filter can't forget a key, so removed keys leave stale bits behind that raise the false positive rate.
+ * The filter gets rebuilt from the wrapped map's keys whenever the keys removed since the last rebuild reach half
+ * the size the filter was built for, or the map outgrows that size. Either way the filter never gives a false
+ * negative, as long as every key gets added through this map rather than through the wrapped map directly. Keys
+ * removed through the views and their iterators are counted too.
+ * <p>
+ * This class is not thread-safe.
+ * @param <K> The Key type
+ * @param <V> The Value type
+ */
+final class BloomFilteredMap<K, V> implements SafeMap<K, V> {
+	private static final double LN_2 = Math.log(2.0);
+
+	private final SafeMap<K, V> map;
+	private final Class<K> keyClass;
+	private final double falsePositiveRate;
+	private long[] bits;
+	private int bitCount;
+	private int hashCount;
+	private int capacity; // the number of keys the filter was sized for
+	private int removals = 0; // keys removed since the last rebuild
+	private Set<K> keySet = null;
+	private Collection<V> values = null;
+	private Set<Entry<K, V>> entrySet = null;
+
+	/**
+	 * @param map The map to wrap. It may already hold entries.
+	 * @param keyClass The Key class instance
+	 * @param expectedKeys The number of keys to size the filter for, at first
+	 * @param falsePositiveRate The fraction of misses that should get passed on to the wrapped map, such as 0.01
+	 */
+	BloomFilteredMap(SafeMap<K, V> map, Class<K> keyClass, int expectedKeys, double falsePositiveRate) {
+		if ((falsePositiveRate <= 0.0) || (falsePositiveRate >= 1.0)) {
+			throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+		}
+		this.map = map;
+		this.keyClass = keyClass;
+		this.falsePositiveRate = falsePositiveRate;
+		rebuild(Math.max(expectedKeys, map.size()));
+	}
+
+	/**
+	 * Rebuilds the filter from the wrapped map's keys, sized for the given number of keys.
+	 */
+	private void rebuild(int expectedKeys) {
+		capacity = Math.max(expectedKeys, 16);
+		long bitsNeeded = (long) Math.ceil((-capacity * Math.log(falsePositiveRate)) / (LN_2 * LN_2));
+		bitCount = (int) Math.min(bitsNeeded, Integer.MAX_VALUE - 63);
+		hashCount = Math.max(1, (int) Math.round(((double) bitCount / capacity) * LN_2));
+		bits = new long[(bitCount + 63) >>> 6];
+		removals = 0;
+		for (K key : map.keySet()) {
+			addToFilter(key);
+		}
+	}
+
+	/**
+	 * Mixes the key's hash into 64 well-distributed bits (the MurmurHash3 finalizer). The two halves serve as two
+	 * independent hashes, which can be combined to simulate as many hash functions as the filter needs.
+	 */
+	private static long hash(Object key) {
+		long h = Objects.hashCode(key);
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private void addToFilter(Object key) {
+		long hash = hash(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashCount; ++i) {
+			int bit = ((h1 + (i * h2)) & Integer.MAX_VALUE) % bitCount;
+			bits[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	private boolean mightContain(Object key) {
+		long hash = hash(keyClass.cast(key));
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashCount; ++i) {
+			int bit = ((h1 + (i * h2)) & Integer.MAX_VALUE) % bitCount;
+			if ((bits[bit >>> 6] & (1L << bit)) == 0L) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean containsKey(Object key) {
+		return mightContain(key) && map.containsKey(key);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean containsValue(Object value) {
+		return map.containsValue(value);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public V get(Object key) {
+		return mightContain(key) ? map.get(key) : null;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public V getOrDefault(Object key, V defaultValue) {
+		return mightContain(key) ? map.getOrDefault(key, defaultValue) : defaultValue;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		V previous = map.put(key, value);
+		addToFilter(key);
+		if (map.size() > capacity) {
+			rebuild(2 * map.size());
+		}
+		return previous;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public V remove(Object key) {
+		if (!mightContain(key)) {
+			return null;
+		}
+		int sizeBefore = map.size();
+		V previous = map.remove(key);
+		if (map.size() < sizeBefore) {
+			removed();
+		}
+		return previous;
+	}
+
+	/**
+	 * Counts a key removed from the wrapped map, and rebuilds the filter once enough stale bits have piled up.
+	 */
+	private void removed() {
+		if (++removals >= (capacity / 2)) {
+			rebuild(Math.max(2 * map.size(), capacity / 2));
+		}
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+		rebuild(capacity);
+	}
+
+	@Override
+	public Set<K> keySet() {
+		if (keySet == null) {
+			keySet = new AbstractSet<K>() {
+				@Override
+				public int size() {
+					return map.size();
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return containsKey(o);
+				}
+
+				@Override
+				public boolean remove(Object o) {
+					int sizeBefore = map.size();
+					BloomFilteredMap.this.remove(o);
+					return map.size() < sizeBefore;
+				}
+
+				@Override
+				public void clear() {
+					BloomFilteredMap.this.clear();
+				}
+
+				@Override
+				public Iterator<K> iterator() {
+					return counting(map.keySet().iterator());
+				}
+			};
+		}
+		return keySet;
+	}
+
+	@Override
+	public Collection<V> values() {
+		if (values == null) {
+			values = new AbstractCollection<V>() {
+				@Override
+				public int size() {
+					return map.size();
+				}
+
+				@Override
+				public void clear() {
+					BloomFilteredMap.this.clear();
+				}
+
+				@Override
+				public Iterator<V> iterator() {
+					return counting(map.values().iterator());
+				}
+			};
+		}
+		return values;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Entry<K, V>>() {
+				@Override
+				public int size() {
+					return map.size();
+				}
+
+				@Override
+				public void clear() {
+					BloomFilteredMap.this.clear();
+				}
+
+				@Override
+				public Iterator<Entry<K, V>> iterator() {
+					return counting(map.entrySet().iterator());
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	/**
+	 * Wraps an iterator over one of the wrapped map's views, so keys removed through it get counted like any other.
+	 * Rebuilding the filter only reads the wrapped map, so the iteration can go on afterwards.
+	 */
+	private <T> Iterator<T> counting(final Iterator<T> iterator) {
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				removed();
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return (obj == this) || map.equals(obj);
+	}
+
+	@Override
+	public int hashCode() {
+		return map.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return map.toString();
+	}
+}
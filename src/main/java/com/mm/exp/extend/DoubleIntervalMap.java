@@ -0,0 +1,146 @@
+package com.mm.exp.extend;
+
+import java.util.List;
+
+/**
+ * Primitive version of {@link IntervalMap}, for intervals with double bounds, such as price bands. Intervals are
+ * closed, so an interval contains both its min and its max.
+ * <p>
+ * Each bound is stored in a {@link LongIntervalMap} as a long that sorts in the same order as the double, so this
+ * has the same performance, and its forEach methods don't allocate either. Zero and negative zero are treated as
+ * the same value. NaN bounds and points are not allowed.
+ * <p>
+ * This class is not thread-safe.
+ * @param <V> The Value type
+ */
+@SuppressWarnings("WeakerAccess")
+public class DoubleIntervalMap<V> {
+	/**
+	 * Receives the intervals found by a query.
+	 * @param <V> The Value type
+	 */
+	@FunctionalInterface
+	public interface IntervalConsumer<V> {
+		void accept(double min, double max, V value);
+	}
+
+	private final LongIntervalMap<V> map;
+	private final Adapter adapter = new Adapter();
+
+	public DoubleIntervalMap() {
+		map = new LongIntervalMap<>();
+	}
+
+	public DoubleIntervalMap(int initialCapacity) {
+		map = new LongIntervalMap<>(initialCapacity);
+	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	public void clear() {
+		map.clear();
+	}
+
+	/**
+	 * Maps an interval to a value. If min is greater than max, they are swapped.
+	 * @return The previous value for this interval, or null if there was none
+	 */
+	public V put(double min, double max, V value) {
+		return map.put(toSortable(min), toSortable(max), value);
+	}
+
+	public V get(double min, double max) {
+		return map.get(toSortable(min), toSortable(max));
+	}
+
+	public boolean containsInterval(double min, double max) {
+		return map.containsInterval(toSortable(min), toSortable(max));
+	}
+
+	public V remove(double min, double max) {
+		return map.remove(toSortable(min), toSortable(max));
+	}
+
+	/**
+	 * @return The values of every interval that contains the point, in interval order
+	 */
+	public List<V> findContaining(double point) {
+		return map.findContaining(toSortable(point));
+	}
+
+	/**
+	 * @return The values of every interval that overlaps the given interval, in interval order
+	 */
+	public List<V> findOverlapping(double min, double max) {
+		return map.findOverlapping(toSortable(min), toSortable(max));
+	}
+
+	public void forEachContaining(double point, IntervalConsumer<? super V> consumer) {
+		long sortable = toSortable(point);
+		IntervalConsumer<? super V> outer = adapter.target;
+		adapter.target = consumer;
+		try {
+			map.forEachContaining(sortable, adapter);
+		} finally {
+			adapter.target = outer;
+		}
+	}
+
+	public void forEachOverlapping(double min, double max, IntervalConsumer<? super V> consumer) {
+		long lo = toSortable(min);
+		long hi = toSortable(max);
+		IntervalConsumer<? super V> outer = adapter.target;
+		adapter.target = consumer;
+		try {
+			map.forEachOverlapping(lo, hi, adapter);
+		} finally {
+			adapter.target = outer;
+		}
+	}
+
+	public void forEach(IntervalConsumer<? super V> consumer) {
+		IntervalConsumer<? super V> outer = adapter.target;
+		adapter.target = consumer;
+		try {
+			map.forEach(adapter);
+		} finally {
+			adapter.target = outer;
+		}
+	}
+
+	/**
+	 * Converts the bounds back to doubles for the consumer of the current query. There is one per map, rather than a
+	 * lambda per query, so the forEach methods don't allocate. A query made from inside a consumer saves and restores
+	 * the outer query's consumer.
+	 */
+	private final class Adapter implements LongIntervalMap.IntervalConsumer<V> {
+		private IntervalConsumer<? super V> target = null;
+
+		@Override
+		public void accept(long min, long max, V value) {
+			target.accept(fromSortable(min), fromSortable(max), value);
+		}
+	}
+
+	/**
+	 * Converts a double to a long that sorts in the same order. Flipping the non-sign bits of negative values
+	 * reverses their order, so they sort below the positive values.
+	 */
+	private static long toSortable(double value) {
+		if (value != value) {
+			throw new IllegalArgumentException("NaN");
+		}
+		long bits = Double.doubleToLongBits(value + 0.0); // adding 0.0 turns -0.0 into 0.0
+		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+	}
+
+	private static double fromSortable(long sortable) {
+		return Double.longBitsToDouble(sortable ^ ((sortable >> 63) & Long.MAX_VALUE));
+	}
+}
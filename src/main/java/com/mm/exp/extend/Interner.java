@@ -0,0 +1,134 @@
+package com.mm.exp.extend;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A concurrent pool of canonical instances. Interning a value returns the first equal instance that was interned,
+ * so equal values share a single copy. The pool only holds weak references, so a canonical instance can be
+ * collected once no map (or anything else) holds on to it.
+ * <p>
+ * Byte arrays are compared by content, not by identity. Values are only considered equal if they are of the same
+ * class, so interning never returns an instance of a different class than the one passed in. An array that has
+ * been interned must never be changed, since it may be shared, and the pool has already hashed its content.
+ */
+@SuppressWarnings("WeakerAccess")
+final class Interner {
+	private static final Interner SHARED = new Interner();
+	private static final Set<Class<?>> IMMUTABLE_CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+			Float.class, Double.class, BigInteger.class, BigDecimal.class)));
+
+	private final ConcurrentHashMap<WeakKey, WeakKey> pool = new ConcurrentHashMap<>();
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	/**
+	 * @return The pool shared by all interning maps.
+	 */
+	static Interner shared() { return SHARED; }
+
+	/**
+	 * Returns the canonical instance that is equal to the value, adding the value to the pool if there is none.
+	 * @param value The value. May be null, in which case null is returned.
+	 * @param <T> The value type
+	 * @return The canonical instance
+	 */
+	<T> T intern(T value) {
+		if (value == null) {
+			return null;
+		}
+		expungeStaleEntries();
+		WeakKey key = new WeakKey(value, queue);
+		while (true) {
+			WeakKey existing = pool.putIfAbsent(key, key);
+			if (existing == null) {
+				return value;
+			}
+			Object canonical = existing.get();
+			if (canonical != null) {
+				@SuppressWarnings("unchecked")
+				T result = (T) canonical;
+				return result;
+			}
+			// The canonical instance was collected after we found it. Drop the stale entry and try again.
+			pool.remove(existing, existing);
+		}
+	}
+
+	/**
+	 * @return The number of entries in the pool, including any that were collected but not yet expunged.
+	 */
+	int size() {
+		expungeStaleEntries();
+		return pool.size();
+	}
+
+	/**
+	 * Tells whether a value is of a class whose instances can't be changed, so it's safe to share one instance among
+	 * unrelated maps. Subclasses don't count, since BigInteger and BigDecimal may have mutable ones.
+	 */
+	static boolean isImmutable(Object value) {
+		return (value != null) && IMMUTABLE_CLASSES.contains(value.getClass());
+	}
+
+	private void expungeStaleEntries() {
+		Reference<?> stale;
+		while ((stale = queue.poll()) != null) {
+			pool.remove(stale);
+		}
+	}
+
+	private static int contentHash(Object value) {
+		return (value instanceof byte[]) ? Arrays.hashCode((byte[]) value) : value.hashCode();
+	}
+
+	static boolean contentEquals(Object a, Object b) {
+		if (a == b) {
+			return true;
+		}
+		if ((a == null) || (b == null) || (a.getClass() != b.getClass())) {
+			return false;
+		}
+		return (a instanceof byte[]) ? Arrays.equals((byte[]) a, (byte[]) b) : a.equals(b);
+	}
+
+	/**
+	 * Weak reference that remembers the hash of its referent, so it can still be found and removed after the
+	 * referent is collected. A cleared key is only equal to itself.
+	 */
+	private static final class WeakKey extends WeakReference<Object> {
+		private final int hash;
+
+		private WeakKey(Object referent, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			hash = contentHash(referent);
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof WeakKey)) {
+				return false;
+			}
+			WeakKey other = (WeakKey) obj;
+			if (other.hash != hash) {
+				return false;
+			}
+			Object referent = get();
+			return (referent != null) && contentEquals(referent, other.get());
+		}
+	}
+}
@@ -0,0 +1,337 @@
+package com.mm.exp.extend;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Fail-fast SafeMap that deduplicates its values through a shared {@link Interner}, so equal values stored in any
+ * interning map share one instance. Keys may optionally be interned as well.
+ * <p>
+ * Since interned instances are shared by unrelated maps, only values and keys whose instances can't be changed get
+ * interned: Strings, boxed primitives, BigIntegers, BigDecimals, and byte[] values, which get copied. Anything
+ * else is stored as it is, as a HashMap would store it, so changing it never changes what another map holds.
+ * <p>
+ * Large String and byte[] values may also be stored compressed. A compressed value is inflated each time it is
+ * read, by {@code find()}, {@code get()}, or through one of the views, so callers that read the same large value
+ * repeatedly should hold on to it rather than look it up again. Compressed values are interned too, so equal
+ * large values share one compressed copy.
+ * <p>
+ * A byte[] value is copied when it's put, and every read returns a new copy, whether or not it was compressed,
+ * so changing an array never changes what any interning map holds. As in any Map, arrays are compared by
+ * identity in {@code equals()} and {@code hashCode()} of the map and its entries. So, since every read returns a
+ * new array, a map holding byte[] values is never equal to another map holding them. Only
+ * {@code containsValue()} compares arrays by content.
+ * <p>
+ * Like {@link SafeHashMap}, the unsafe methods fail fast with a ClassCastException if they are called with a key
+ * or value of the wrong type.
+ * @param <K> The Key type
+ * @param <V> The Value type
+ */
+@SuppressWarnings("WeakerAccess")
+final class InterningMap<K, V> extends AbstractMap<K, V> implements SafeMap<K, V> {
+	/**
+	 * Compression threshold that turns compression off.
+	 */
+	static final int NO_COMPRESSION = -1;
+
+	private final Map<K, Object> store = new HashMap<>();
+	private final Class<K> keyClass;
+	private final Class<V> valueClass;
+	private final boolean internKeys;
+	private final int compressionThreshold;
+	private final Interner interner;
+	private EntrySet entrySet = null;
+
+	/**
+	 * @param keyClass The Key class instance
+	 * @param valueClass The value class instance
+	 * @param internKeys True to intern keys as well as values
+	 * @param compressionThreshold The length (in chars for a String) at which String and byte[] values get
+	 *                             compressed, or {@link #NO_COMPRESSION}
+	 * @param interner The intern pool
+	 */
+	InterningMap(Class<K> keyClass, Class<V> valueClass, boolean internKeys, int compressionThreshold, Interner interner) {
+		this.keyClass = keyClass;
+		this.valueClass = valueClass;
+		this.internKeys = internKeys;
+		this.compressionThreshold = compressionThreshold;
+		this.interner = interner;
+	}
+
+	@Override
+	public int size() {
+		return store.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return store.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return store.containsKey(keyClass.cast(key));
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		V v = valueClass.cast(value);
+		for (Object stored : store.values()) {
+			if (Interner.contentEquals(v, (stored instanceof Compressed) ? decode(stored) : stored)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(Object key) {
+		return decode(store.get(keyClass.cast(key)));
+	}
+
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		Object stored = store.get(keyClass.cast(key));
+		return ((stored != null) || store.containsKey(key)) ? decode(stored) : defaultValue;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		K k = (internKeys && Interner.isImmutable(key)) ? interner.intern(key) : key;
+		return decode(store.put(k, encode(value)));
+	}
+
+	@Override
+	public V remove(Object key) {
+		return decode(store.remove(keyClass.cast(key)));
+	}
+
+	@Override
+	public void clear() {
+		store.clear();
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private Object encode(V value) {
+		if ((compressionThreshold >= 0)
+				&& (value instanceof String) && (((String) value).length() >= compressionThreshold)) {
+			Compressed compressed = compressIfSmaller(((String) value).getBytes(StandardCharsets.UTF_8), true);
+			if (compressed != null) {
+				return interner.intern(compressed);
+			}
+		}
+		if (value instanceof byte[]) {
+			byte[] bytes = (byte[]) value;
+			if ((compressionThreshold >= 0) && (bytes.length >= compressionThreshold)) {
+				Compressed compressed = compressIfSmaller(bytes, false);
+				if (compressed != null) {
+					return interner.intern(compressed);
+				}
+			}
+			// The interned array is shared by every interning map, so it must be a copy that no caller can change.
+			return interner.intern(bytes.clone());
+		}
+		return Interner.isImmutable(value) ? interner.intern(value) : value;
+	}
+
+	/**
+	 * @return The compressed bytes, or null if compressing doesn't make them smaller
+	 */
+	private static Compressed compressIfSmaller(byte[] raw, boolean isString) {
+		byte[] compressed = deflate(raw);
+		return (compressed.length < raw.length) ? new Compressed(compressed, raw.length, isString) : null;
+	}
+
+	/**
+	 * Returns the value as stored. A byte[] value is always a new copy, as if it had been compressed.
+	 */
+	@SuppressWarnings("unchecked")
+	private V decode(Object stored) {
+		if (stored instanceof Compressed) {
+			return valueClass.cast(((Compressed) stored).inflate());
+		}
+		if (stored instanceof byte[]) {
+			return valueClass.cast(((byte[]) stored).clone());
+		}
+		return (V) stored;
+	}
+
+	/**
+	 * @return True if the stored value is a byte[], which may be compressed
+	 */
+	private static boolean isByteArray(Object stored) {
+		return (stored instanceof byte[]) || ((stored instanceof Compressed) && !((Compressed) stored).isString);
+	}
+
+	private static byte[] deflate(byte[] raw) {
+		Deflater deflater = new Deflater();
+		try {
+			deflater.setInput(raw);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+			byte[] buffer = new byte[4096];
+			while (!deflater.finished()) {
+				int count = deflater.deflate(buffer);
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * A compressed String or byte[] value. Equality is by content, so the Interner can deduplicate these too.
+	 */
+	private static final class Compressed {
+		private final byte[] data;
+		private final int rawLength;
+		private final boolean isString;
+
+		private Compressed(byte[] data, int rawLength, boolean isString) {
+			this.data = data;
+			this.rawLength = rawLength;
+			this.isString = isString;
+		}
+
+		private Object inflate() {
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(data);
+				byte[] raw = new byte[rawLength];
+				int offset = 0;
+				while (offset < rawLength) {
+					int count = inflater.inflate(raw, offset, rawLength - offset);
+					if ((count == 0) && (inflater.finished() || inflater.needsInput())) {
+						throw new IllegalStateException("Truncated compressed value");
+					}
+					offset += count;
+				}
+				return isString ? new String(raw, StandardCharsets.UTF_8) : raw;
+			} catch (DataFormatException e) {
+				throw new IllegalStateException(e);
+			} finally {
+				inflater.end();
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(data);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof Compressed)) {
+				return false;
+			}
+			Compressed other = (Compressed) obj;
+			return (isString == other.isString) && Arrays.equals(data, other.data);
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<K, V>> {
+		@Override
+		public int size() {
+			return store.size();
+		}
+
+		@Override
+		public void clear() {
+			store.clear();
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			final Iterator<Entry<K, Object>> iterator = store.entrySet().iterator();
+			return new Iterator<Entry<K, V>>() {
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Entry<K, V> next() {
+					return new DecodingEntry(iterator.next());
+				}
+
+				@Override
+				public void remove() {
+					iterator.remove();
+				}
+			};
+		}
+	}
+
+	private final class DecodingEntry implements Entry<K, V> {
+		private final Entry<K, Object> entry;
+
+		private DecodingEntry(Entry<K, Object> entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public K getKey() {
+			return entry.getKey();
+		}
+
+		@Override
+		public V getValue() {
+			return decode(entry.getValue());
+		}
+
+		@Override
+		public V setValue(V value) {
+			return decode(entry.setValue(encode(value)));
+		}
+
+		/**
+		 * Follows the Map.Entry contract, so arrays hash by identity. The stored array, or its compressed form, stands
+		 * in for the copies that getValue() returns, so the hash doesn't change from one call to the next.
+		 */
+		@Override
+		public int hashCode() {
+			Object stored = entry.getValue();
+			int valueHash = isByteArray(stored) ? System.identityHashCode(stored) : Objects.hashCode(decode(stored));
+			return Objects.hashCode(getKey()) ^ valueHash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> other = (Entry<?, ?>) obj;
+			return Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
@@ -0,0 +1,404 @@
+package com.mm.exp.extend;
+
+import com.mm.exp.Range;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Fail-fast SafeMap keyed by Ranges, which can find every entry whose Range contains a point, or overlaps another
+ * Range. Ranges are closed, so a Range contains both its min and its max.
+ * <p>
+ * The entries are held in an interval tree: a balanced binary search tree (a treap) ordered by each Range's min,
+ * then its max, where each node also holds the largest max in its subtree. Lookups, insertions and removals take
+ * O(log n) time. The stabbing and overlap queries skip every subtree that can't hold a match, so they take
+ * O(log n + k) time when they find k entries. Iteration is in key order.
+ * <p>
+ * The unsafe methods fail fast with a ClassCastException if they are given a key that isn't a Range of N. Null
+ * keys are not allowed. For long or double keys, {@link LongIntervalMap} and {@link DoubleIntervalMap} avoid
+ * boxing.
+ * <p>
+ * This class is not thread-safe.
+ * @param <N> The type of the Range bounds
+ * @param <V> The Value type
+ */
+@SuppressWarnings("WeakerAccess")
+public class IntervalMap<N extends Number & Comparable<N>, V> extends AbstractMap<Range<N>, V>
+		implements SafeMap<Range<N>, V> {
+	private final Class<N> numberClass;
+	private Node<N, V> root = null;
+	private int size = 0;
+	private int modCount = 0;
+	private int seed = 0x2545F491;
+	private EntrySet entrySet = null;
+
+	/**
+	 * @param numberClass The class of the Range bounds, used to fail fast
+	 */
+	public IntervalMap(Class<N> numberClass) {
+		this.numberClass = numberClass;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return findNode(castKey(key)) != null;
+	}
+
+	@Override
+	public V get(Object key) {
+		Node<N, V> node = findNode(castKey(key));
+		return (node == null) ? null : node.value;
+	}
+
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		Node<N, V> node = findNode(castKey(key));
+		return (node == null) ? defaultValue : node.value;
+	}
+
+	@Override
+	public V put(Range<N> key, V value) {
+		Objects.requireNonNull(key);
+		Node<N, V> node = findNode(key);
+		if (node != null) {
+			V previous = node.value;
+			node.value = value;
+			return previous;
+		}
+		root = insert(root, new Node<>(key, value, nextPriority()));
+		size++;
+		modCount++;
+		return null;
+	}
+
+	@Override
+	public V remove(Object key) {
+		Range<N> range = castKey(key);
+		Node<N, V> node = findNode(range);
+		if (node == null) {
+			return null;
+		}
+		root = delete(root, range);
+		size--;
+		modCount++;
+		return node.value;
+	}
+
+	@Override
+	public void clear() {
+		root = null;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Finds every entry whose key contains the point.
+	 * @param point The point
+	 * @return The matching entries, in key order
+	 */
+	public List<Entry<Range<N>, V>> findContaining(N point) {
+		List<Entry<Range<N>, V>> result = new ArrayList<>();
+		collectOverlapping(root, point, point, result);
+		return result;
+	}
+
+	/**
+	 * Finds every entry whose key overlaps the given range.
+	 * @param range The range
+	 * @return The matching entries, in key order
+	 */
+	public List<Entry<Range<N>, V>> findOverlapping(Range<N> range) {
+		List<Entry<Range<N>, V>> result = new ArrayList<>();
+		collectOverlapping(root, range.getMin(), range.getMax(), result);
+		return result;
+	}
+
+	private void collectOverlapping(Node<N, V> node, N min, N max, List<Entry<Range<N>, V>> result) {
+		if ((node == null) || (node.maxInSubtree.compareTo(min) < 0)) {
+			return; // Nothing in this subtree reaches min.
+		}
+		collectOverlapping(node.left, min, max, result);
+		if (node.min.compareTo(max) > 0) {
+			return; // This node, and everything to its right, starts after max.
+		}
+		if (node.max.compareTo(min) >= 0) {
+			result.add(node);
+		}
+		collectOverlapping(node.right, min, max, result);
+	}
+
+	@Override
+	public Set<Entry<Range<N>, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Range<N> castKey(Object key) {
+		Range<?> range = Range.class.cast(Objects.requireNonNull(key));
+		numberClass.cast(range.getMin());
+		numberClass.cast(range.getMax());
+		return (Range<N>) range;
+	}
+
+	private int nextPriority() {
+		// xorshift
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return seed;
+	}
+
+	private static <N extends Number & Comparable<N>> int compare(N min, N max, Node<N, ?> node) {
+		int result = min.compareTo(node.min);
+		return (result == 0) ? max.compareTo(node.max) : result;
+	}
+
+	private Node<N, V> findNode(Range<N> key) {
+		N min = key.getMin();
+		N max = key.getMax();
+		Node<N, V> node = root;
+		while (node != null) {
+			int comparison = compare(min, max, node);
+			if (comparison == 0) {
+				return node;
+			}
+			node = (comparison < 0) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	private Node<N, V> insert(Node<N, V> node, Node<N, V> newNode) {
+		if (node == null) {
+			return newNode;
+		}
+		if (compare(newNode.min, newNode.max, node) < 0) {
+			node.left = insert(node.left, newNode);
+			if (node.left.priority > node.priority) {
+				return rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, newNode);
+			if (node.right.priority > node.priority) {
+				return rotateLeft(node);
+			}
+		}
+		node.update();
+		return node;
+	}
+
+	private Node<N, V> delete(Node<N, V> node, Range<N> key) {
+		int comparison = compare(key.getMin(), key.getMax(), node);
+		if (comparison == 0) {
+			return merge(node.left, node.right);
+		}
+		if (comparison < 0) {
+			node.left = delete(node.left, key);
+		} else {
+			node.right = delete(node.right, key);
+		}
+		node.update();
+		return node;
+	}
+
+	private Node<N, V> merge(Node<N, V> left, Node<N, V> right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			left.update();
+			return left;
+		}
+		right.left = merge(left, right.left);
+		right.update();
+		return right;
+	}
+
+	private static <N extends Number & Comparable<N>, V> Node<N, V> rotateRight(Node<N, V> node) {
+		Node<N, V> left = node.left;
+		node.left = left.right;
+		node.update();
+		left.right = node;
+		left.update();
+		return left;
+	}
+
+	private static <N extends Number & Comparable<N>, V> Node<N, V> rotateLeft(Node<N, V> node) {
+		Node<N, V> right = node.right;
+		node.right = right.left;
+		node.update();
+		right.left = node;
+		right.update();
+		return right;
+	}
+
+	private static final class Node<N extends Number & Comparable<N>, V> implements Entry<Range<N>, V> {
+		private final Range<N> key;
+		private final N min;
+		private final N max;
+		private final int priority;
+		private V value;
+		private N maxInSubtree;
+		private Node<N, V> left = null;
+		private Node<N, V> right = null;
+
+		private Node(Range<N> key, V value, int priority) {
+			this.key = key;
+			this.value = value;
+			this.priority = priority;
+			min = key.getMin();
+			max = key.getMax();
+			maxInSubtree = max;
+		}
+
+		private void update() {
+			N largest = max;
+			if ((left != null) && (left.maxInSubtree.compareTo(largest) > 0)) {
+				largest = left.maxInSubtree;
+			}
+			if ((right != null) && (right.maxInSubtree.compareTo(largest) > 0)) {
+				largest = right.maxInSubtree;
+			}
+			maxInSubtree = largest;
+		}
+
+		@Override
+		public Range<N> getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public V setValue(V value) {
+			V previous = this.value;
+			this.value = value;
+			return previous;
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode() ^ Objects.hashCode(value);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> other = (Entry<?, ?>) obj;
+			return key.equals(other.getKey()) && Objects.equals(value, other.getValue());
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<Range<N>, V>> {
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			IntervalMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Entry<Range<N>, V>> iterator() {
+			return new EntryIterator();
+		}
+	}
+
+	/**
+	 * In-order iterator. The stack holds the nodes whose left subtrees are being visited.
+	 */
+	private final class EntryIterator implements Iterator<Entry<Range<N>, V>> {
+		private final Deque<Node<N, V>> stack = new ArrayDeque<>();
+		private Node<N, V> last = null;
+		private int expectedModCount = modCount;
+
+		private EntryIterator() {
+			pushLeft(root);
+		}
+
+		private void pushLeft(Node<N, V> node) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		@Override
+		public Entry<Range<N>, V> next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			last = stack.pop();
+			pushLeft(last.right);
+			return last;
+		}
+
+		@Override
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IntervalMap.this.remove(last.key);
+			expectedModCount = modCount;
+			// Removal reshapes the tree, so find the path to the successor again.
+			stack.clear();
+			Node<N, V> node = root;
+			while (node != null) {
+				if (compare(last.min, last.max, node) < 0) {
+					stack.push(node);
+					node = node.left;
+				} else {
+					node = node.right;
+				}
+			}
+			last = null;
+		}
+	}
+}
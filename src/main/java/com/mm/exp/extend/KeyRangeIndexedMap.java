@@ -0,0 +1,37 @@
+package com.mm.exp.extend;
+
+import com.mm.exp.Range;
+import java.util.TreeSet;
+
+/**
+ * A {@link RangeIndexedMap} with numeric keys, which keeps the range of its keys up to date too, so
+ * {@link #keyRange()} also takes O(log n) time. Null keys are not allowed.
+ * @param <K> The Key type
+ * @param <V> The Value type
+ */
+@SuppressWarnings("WeakerAccess")
+public final class KeyRangeIndexedMap<K extends Number & Comparable<K>, V extends Number & Comparable<V>>
+		extends RangeIndexedMap<K, V> {
+
+	/**
+	 * @param map The map to wrap. It may already hold entries, but no null keys or values.
+	 * @param keyClass The Key class instance
+	 * @param valueClass The value class instance
+	 */
+	KeyRangeIndexedMap(SafeMap<K, V> map, Class<K> keyClass, Class<V> valueClass) {
+		super(map, keyClass, valueClass, true);
+	}
+
+	/**
+	 * Returns the range of the keys, without scanning them.
+	 * @return The smallest and largest keys in the map
+	 * @throws IllegalStateException if the map is empty
+	 */
+	public Range<K> keyRange() {
+		TreeSet<K> keys = getKeyIndex();
+		if (keys.isEmpty()) {
+			throw new IllegalStateException("Empty DataSet");
+		}
+		return new Range<>(keys.first(), keys.last());
+	}
+}
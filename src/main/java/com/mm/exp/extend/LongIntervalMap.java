@@ -0,0 +1,317 @@
+package com.mm.exp.extend;
+
+import com.mm.exp.Range;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive version of {@link IntervalMap}, for intervals with long bounds, such as IP address blocks or time
+ * windows. Intervals are closed, so an interval contains both its min and its max.
+ * <p>
+ * The tree lives in parallel primitive arrays, indexed by node number, so the intervals are never boxed and each
+ * entry costs no objects beyond its value. Lookups, insertions and removals take O(log n) time, and the stabbing and
+ * overlap queries take O(log n + k) time when they find k intervals. The forEach methods report their matches to a
+ * callback, so they don't allocate.
+ * <p>
+ * This class is not thread-safe.
+ * @param <V> The Value type
+ */
+@SuppressWarnings("WeakerAccess")
+public class LongIntervalMap<V> {
+	private static final int NIL = -1;
+
+	/**
+	 * Receives the intervals found by a query.
+	 * @param <V> The Value type
+	 */
+	@FunctionalInterface
+	public interface IntervalConsumer<V> {
+		void accept(long min, long max, V value);
+	}
+
+	private long[] mins;
+	private long[] maxes;
+	private long[] maxInSubtree;
+	private int[] left;
+	private int[] right;
+	private int[] priority;
+	private Object[] values;
+	private int root = NIL;
+	private int size = 0;
+	private int used = 0; // nodes ever allocated, including free ones
+	private int free = NIL; // free list, chained through left[]
+	private int seed = 0x2545F491;
+
+	public LongIntervalMap() {
+		this(16);
+	}
+
+	public LongIntervalMap(int initialCapacity) {
+		allocate(Math.max(initialCapacity, 1));
+	}
+
+	private void allocate(int capacity) {
+		mins = new long[capacity];
+		maxes = new long[capacity];
+		maxInSubtree = new long[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		priority = new int[capacity];
+		values = new Object[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(values, 0, used, null);
+		root = NIL;
+		size = 0;
+		used = 0;
+		free = NIL;
+	}
+
+	/**
+	 * Maps an interval to a value. If min is greater than max, they are swapped, as {@link Range} does.
+	 * @return The previous value for this interval, or null if there was none
+	 */
+	public V put(long min, long max, V value) {
+		long lo = Math.min(min, max);
+		long hi = Math.max(min, max);
+		int node = findNode(lo, hi);
+		if (node != NIL) {
+			V previous = value(node);
+			values[node] = value;
+			return previous;
+		}
+		root = insert(root, newNode(lo, hi, value));
+		size++;
+		return null;
+	}
+
+	/**
+	 * @return The value of the interval, or null if the map doesn't hold it
+	 */
+	public V get(long min, long max) {
+		int node = findNode(Math.min(min, max), Math.max(min, max));
+		return (node == NIL) ? null : value(node);
+	}
+
+	public boolean containsInterval(long min, long max) {
+		return findNode(Math.min(min, max), Math.max(min, max)) != NIL;
+	}
+
+	/**
+	 * @return The removed value, or null if the map didn't hold the interval
+	 */
+	public V remove(long min, long max) {
+		long lo = Math.min(min, max);
+		long hi = Math.max(min, max);
+		int node = findNode(lo, hi);
+		if (node == NIL) {
+			return null;
+		}
+		V previous = value(node);
+		root = delete(root, lo, hi);
+		values[node] = null;
+		left[node] = free;
+		free = node;
+		size--;
+		return previous;
+	}
+
+	/**
+	 * @return The values of every interval that contains the point, in interval order
+	 */
+	public List<V> findContaining(long point) {
+		List<V> result = new ArrayList<>();
+		forEachOverlapping(point, point, (min, max, value) -> result.add(value));
+		return result;
+	}
+
+	/**
+	 * @return The values of every interval that overlaps the given interval, in interval order
+	 */
+	public List<V> findOverlapping(long min, long max) {
+		List<V> result = new ArrayList<>();
+		forEachOverlapping(min, max, (lo, hi, value) -> result.add(value));
+		return result;
+	}
+
+	/**
+	 * Passes every interval that contains the point to the consumer, in interval order.
+	 */
+	public void forEachContaining(long point, IntervalConsumer<? super V> consumer) {
+		forEachOverlapping(point, point, consumer);
+	}
+
+	/**
+	 * Passes every interval that overlaps the given interval to the consumer, in interval order.
+	 */
+	public void forEachOverlapping(long min, long max, IntervalConsumer<? super V> consumer) {
+		visitOverlapping(root, Math.min(min, max), Math.max(min, max), consumer);
+	}
+
+	/**
+	 * Passes every interval to the consumer, in order of min, then max.
+	 */
+	public void forEach(IntervalConsumer<? super V> consumer) {
+		visitOverlapping(root, Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+	}
+
+	private void visitOverlapping(int node, long min, long max, IntervalConsumer<? super V> consumer) {
+		while ((node != NIL) && (maxInSubtree[node] >= min)) {
+			visitOverlapping(left[node], min, max, consumer);
+			if (mins[node] > max) {
+				return; // This node, and everything to its right, starts after max.
+			}
+			if (maxes[node] >= min) {
+				consumer.accept(mins[node], maxes[node], value(node));
+			}
+			node = right[node];
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private V value(int node) {
+		return (V) values[node];
+	}
+
+	private int newNode(long min, long max, V value) {
+		int node;
+		if (free != NIL) {
+			node = free;
+			free = left[node];
+		} else {
+			if (used == mins.length) {
+				grow();
+			}
+			node = used++;
+		}
+		mins[node] = min;
+		maxes[node] = max;
+		maxInSubtree[node] = max;
+		left[node] = NIL;
+		right[node] = NIL;
+		values[node] = value;
+		// xorshift
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		priority[node] = seed;
+		return node;
+	}
+
+	private void grow() {
+		int capacity = mins.length * 2;
+		mins = Arrays.copyOf(mins, capacity);
+		maxes = Arrays.copyOf(maxes, capacity);
+		maxInSubtree = Arrays.copyOf(maxInSubtree, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		priority = Arrays.copyOf(priority, capacity);
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	private int compare(long min, long max, int node) {
+		int result = Long.compare(min, mins[node]);
+		return (result == 0) ? Long.compare(max, maxes[node]) : result;
+	}
+
+	private int findNode(long min, long max) {
+		int node = root;
+		while (node != NIL) {
+			int comparison = compare(min, max, node);
+			if (comparison == 0) {
+				return node;
+			}
+			node = (comparison < 0) ? left[node] : right[node];
+		}
+		return NIL;
+	}
+
+	private void update(int node) {
+		long largest = maxes[node];
+		if ((left[node] != NIL) && (maxInSubtree[left[node]] > largest)) {
+			largest = maxInSubtree[left[node]];
+		}
+		if ((right[node] != NIL) && (maxInSubtree[right[node]] > largest)) {
+			largest = maxInSubtree[right[node]];
+		}
+		maxInSubtree[node] = largest;
+	}
+
+	private int insert(int node, int newNode) {
+		if (node == NIL) {
+			return newNode;
+		}
+		if (compare(mins[newNode], maxes[newNode], node) < 0) {
+			left[node] = insert(left[node], newNode);
+			if (priority[left[node]] > priority[node]) {
+				return rotateRight(node);
+			}
+		} else {
+			right[node] = insert(right[node], newNode);
+			if (priority[right[node]] > priority[node]) {
+				return rotateLeft(node);
+			}
+		}
+		update(node);
+		return node;
+	}
+
+	private int delete(int node, long min, long max) {
+		int comparison = compare(min, max, node);
+		if (comparison == 0) {
+			return merge(left[node], right[node]);
+		}
+		if (comparison < 0) {
+			left[node] = delete(left[node], min, max);
+		} else {
+			right[node] = delete(right[node], min, max);
+		}
+		update(node);
+		return node;
+	}
+
+	private int merge(int a, int b) {
+		if (a == NIL) {
+			return b;
+		}
+		if (b == NIL) {
+			return a;
+		}
+		if (priority[a] > priority[b]) {
+			right[a] = merge(right[a], b);
+			update(a);
+			return a;
+		}
+		left[b] = merge(a, left[b]);
+		update(b);
+		return b;
+	}
+
+	private int rotateRight(int node) {
+		int top = left[node];
+		left[node] = right[top];
+		update(node);
+		right[top] = node;
+		update(top);
+		return top;
+	}
+
+	private int rotateLeft(int node) {
+		int top = right[node];
+		right[node] = left[top];
+		update(node);
+		left[top] = node;
+		update(top);
+		return top;
+	}
+}
@@ -34,6 +34,102 @@ public final class MapUtil {
 		return new SafeWrappedMap<>(map, keyClass, valueClass);
 	}
 
+	/**
+	 * Creates a fast-fail SafeMap that deduplicates equal values through a shared, weakly referenced intern pool. 
+	 * Equal values stored in any interning map will share a single instance. Only values of immutable types get
+	 * interned: String, the boxed primitives, BigInteger, BigDecimal, and byte[], which gets copied on the way in and
+	 * on the way out. Values of any other type are stored as they are.
+	 * @param keyClass The Key class instance
+	 * @param valueClass The value class instance
+	 * @param <K> The Key Class
+	 * @param <V> The Value Class
+	 * @return A fast-fail SafeMap that interns its values.
+	 */
+	public static <K, V> SafeMap<K, V> interning(Class<K> keyClass, Class<V> valueClass) {
+		return interning(keyClass, valueClass, false, InterningMap.NO_COMPRESSION);
+	}
+
+	/**
+	 * Creates a fast-fail SafeMap that deduplicates equal values, and optionally keys, through a shared, weakly 
+	 * referenced intern pool. String and byte[] values at least {@code compressionThreshold} long are stored 
+	 * compressed, and are decompressed each time they are read. As with {@link #interning(Class, Class)}, only
+	 * values and keys of immutable types get interned.
+	 * @param keyClass The Key class instance
+	 * @param valueClass The value class instance
+	 * @param internKeys True to intern the keys as well as the values
+	 * @param compressionThreshold The length at which String and byte[] values get compressed. Use a negative 
+	 *                             value to turn off compression.
+	 * @param <K> The Key Class
+	 * @param <V> The Value Class
+	 * @return A fast-fail SafeMap that interns its values.
+	 */
+	public static <K, V> SafeMap<K, V> interning(
+			Class<K> keyClass, 
+			Class<V> valueClass, 
+			boolean internKeys, 
+			int compressionThreshold
+	) {
+		int threshold = (compressionThreshold < 0) ? InterningMap.NO_COMPRESSION : compressionThreshold;
+		return new InterningMap<>(keyClass, valueClass, internKeys, threshold, Interner.shared());
+	}
+
+	/**
+	 * Wraps an existing SafeMap in a fast-fail SafeMap that keeps a Bloom filter of its keys. Lookups of keys that
+	 * were never added return without touching the wrapped map, so this speeds up slow maps where most lookups miss.
+	 * All changes to the keys must go through the returned map, not the wrapped one, or lookups may miss keys that
+	 * are present.
+	 * @param map The SafeMap to wrap. It may already hold entries.
+	 * @param keyClass The Key class instance
+	 * @param expectedKeys The number of keys to size the filter for. The filter grows if the map outgrows it.
+	 * @param falsePositiveRate The fraction of misses that may still reach the wrapped map, such as 0.01
+	 * @param <K> The Key Class
+	 * @param <V> The Value Class
+	 * @return A fast-fail SafeMap that filters lookups of the provided map.
+	 */
+	public static <K, V> SafeMap<K, V> wrapBloomFiltered(
+			SafeMap<K, V> map, 
+			Class<K> keyClass, 
+			int expectedKeys, 
+			double falsePositiveRate
+	) {
+		return new BloomFilteredMap<>(map, keyClass, expectedKeys, falsePositiveRate);
+	}
+
+	/**
+	 * Wraps an existing SafeMap in a fast-fail SafeMap that keeps the range of its values up to date as entries are
+	 * put and removed, so {@link RangeIndexedMap#valueRange()} doesn't need to scan the values. All changes must go
+	 * through the returned map, not the wrapped one, or the range may be wrong.
+	 * @param map The SafeMap to wrap. It may already hold entries, but no null values.
+	 * @param keyClass The Key class instance
+	 * @param valueClass The value class instance
+	 * @param <K> The Key Class
+	 * @param <V> The Value Class
+	 * @return A fast-fail SafeMap that tracks the range of the provided map's values.
+	 */
+	public static <K, V extends Number & Comparable<V>> RangeIndexedMap<K, V> wrapRangeIndexed(
+			SafeMap<K, V> map, 
+			Class<K> keyClass, 
+			Class<V> valueClass
+	) {
+		return new RangeIndexedMap<>(map, keyClass, valueClass, false);
+	}
+
+	/**
+	 * Wraps an existing SafeMap with numeric keys in a fast-fail SafeMap that keeps the ranges of both its keys and
+	 * its values up to date as entries are put and removed. All changes must go through the returned map, not the
+	 * wrapped one, or the ranges may be wrong.
+	 * @param map The SafeMap to wrap. It may already hold entries, but no null keys or values.
+	 * @param keyClass The Key class instance
+	 * @param valueClass The value class instance
+	 * @param <K> The Key Class
+	 * @param <V> The Value Class
+	 * @return A fast-fail SafeMap that tracks the ranges of the provided map's keys and values.
+	 */
+	public static <K extends Number & Comparable<K>, V extends Number & Comparable<V>> KeyRangeIndexedMap<K, V> 
+			wrapKeyRangeIndexed(SafeMap<K, V> map, Class<K> keyClass, Class<V> valueClass) {
+		return new KeyRangeIndexedMap<>(map, keyClass, valueClass);
+	}
+
 	/**
 	 * Wrapped Map that does not fail fast. It relies solely on the developer's IDE to catch illegal calls.
 	 * @param <K> The Key type
@@ -0,0 +1,259 @@
+package com.mm.exp.extend;
+
+import com.mm.exp.Range;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Fail-fast SafeMap decorator that keeps the range of its values up to date as entries are put and removed, so
+ * {@link #valueRange()} takes O(log n) time, rather than the O(n) of {@code Range.getRange(map.values())}. The
+ * values are counted in a sorted multiset, so removing the min or max still leaves the next one at hand. Each put
+ * or removal costs O(log n) more than it would in the wrapped map. {@link KeyRangeIndexedMap} also keeps the range
+ * of the keys.
+ * <p>
+ * Values are ordered by their compareTo() method, as {@link Range#getRange(Iterable)} orders them, and so is
+ * {@code containsValue()}, which looks the value up in the index. Null values are not allowed.
+ * <p>
+ * Changes made through the views and their entries and iterators are tracked too. But all changes must go through
+ * this map rather than through the wrapped map directly, or the range will be wrong. The unsafe methods fail fast
+ * with a ClassCastException if they are given a key or value of the wrong type.
+ * <p>
+ * This class is not thread-safe.
+ * @param <K> The Key type
+ * @param <V> The Value type
+ */
+@SuppressWarnings("WeakerAccess")
+public class RangeIndexedMap<K, V extends Number & Comparable<V>> extends AbstractMap<K, V>
+		implements SafeMap<K, V> {
+	private final SafeMap<K, V> map;
+	private final Class<K> keyClass;
+	private final Class<V> valueClass;
+	private final TreeMap<V, Integer> valueCounts = new TreeMap<>();
+	private final TreeSet<K> keyIndex; // null unless the keys are indexed
+	private EntrySet entrySet = null;
+
+	/**
+	 * @param map The map to wrap. It may already hold entries, but no null values.
+	 * @param keyClass The Key class instance
+	 * @param valueClass The value class instance
+	 * @param indexKeys True to keep the keys in order too. The keys must then be Comparable.
+	 */
+	RangeIndexedMap(SafeMap<K, V> map, Class<K> keyClass, Class<V> valueClass, boolean indexKeys) {
+		this.map = map;
+		this.keyClass = keyClass;
+		this.valueClass = valueClass;
+		keyIndex = indexKeys ? new TreeSet<>() : null;
+		for (Entry<K, V> entry : map.entrySet()) {
+			added(entry.getKey(), Objects.requireNonNull(entry.getValue(), "Null values are not allowed"));
+		}
+	}
+
+	/**
+	 * Returns the range of the values, without scanning them.
+	 * @return The smallest and largest values in the map
+	 * @throws IllegalStateException if the map is empty
+	 */
+	public Range<V> valueRange() {
+		if (valueCounts.isEmpty()) {
+			throw new IllegalStateException("Empty DataSet");
+		}
+		return new Range<>(valueCounts.firstKey(), valueCounts.lastKey());
+	}
+
+	/**
+	 * @return The keys in order, for {@link KeyRangeIndexedMap}
+	 */
+	TreeSet<K> getKeyIndex() {
+		return keyIndex;
+	}
+
+	private void added(K key, V value) {
+		valueCounts.merge(value, 1, Integer::sum);
+		if (keyIndex != null) {
+			keyIndex.add(key);
+		}
+	}
+
+	private void removed(Object key, V value) {
+		valueCounts.computeIfPresent(value, (v, count) -> (count == 1) ? null : (count - 1));
+		if (keyIndex != null) {
+			keyIndex.remove(key);
+		}
+	}
+
+	private void replaced(V oldValue, V newValue) {
+		valueCounts.computeIfPresent(oldValue, (v, count) -> (count == 1) ? null : (count - 1));
+		valueCounts.merge(newValue, 1, Integer::sum);
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean containsKey(Object key) {
+		return map.containsKey(keyClass.cast(key));
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		V v = valueClass.cast(value);
+		return (v != null) && valueCounts.containsKey(v);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public V get(Object key) {
+		return map.get(keyClass.cast(key));
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public V getOrDefault(Object key, V defaultValue) {
+		return map.getOrDefault(keyClass.cast(key), defaultValue);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		Objects.requireNonNull(value, "Null values are not allowed");
+		V previous = map.put(key, value);
+		if (previous == null) {
+			added(key, value);
+		} else {
+			replaced(previous, value);
+		}
+		return previous;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public V remove(Object key) {
+		V previous = map.remove(keyClass.cast(key));
+		if (previous != null) {
+			removed(key, previous);
+		}
+		return previous;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+		valueCounts.clear();
+		if (keyIndex != null) {
+			keyIndex.clear();
+		}
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<K, V>> {
+		@Override
+		public int size() {
+			return map.size();
+		}
+
+		@Override
+		public void clear() {
+			RangeIndexedMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			final Iterator<Entry<K, V>> iterator = map.entrySet().iterator();
+			return new Iterator<Entry<K, V>>() {
+				private IndexedEntry last = null;
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Entry<K, V> next() {
+					last = new IndexedEntry(iterator.next());
+					return last;
+				}
+
+				@Override
+				public void remove() {
+					if (last == null) {
+						throw new IllegalStateException();
+					}
+					// Read the entry first, since some maps, like TreeMap, reuse a removed entry for its successor.
+					K key = last.getKey();
+					V value = last.getValue();
+					iterator.remove();
+					removed(key, value);
+					last = null;
+				}
+			};
+		}
+	}
+
+	private final class IndexedEntry implements Entry<K, V> {
+		private final Entry<K, V> entry;
+
+		private IndexedEntry(Entry<K, V> entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public K getKey() {
+			return entry.getKey();
+		}
+
+		@Override
+		public V getValue() {
+			return entry.getValue();
+		}
+
+		@Override
+		public V setValue(V value) {
+			Objects.requireNonNull(value, "Null values are not allowed");
+			V previous = entry.setValue(value);
+			replaced(previous, value);
+			return previous;
+		}
+
+		@Override
+		public int hashCode() {
+			return entry.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj == this) || entry.equals(obj);
+		}
+
+		@Override
+		public String toString() {
+			return entry.toString();
+		}
+	}
+}
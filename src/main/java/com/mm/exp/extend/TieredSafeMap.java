@@ -0,0 +1,677 @@
+package com.mm.exp.extend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Fail-fast SafeMap that keeps a bounded number of recently used values on the heap, and spills the rest to files
+ * on local disk. Looking up a value on disk with {@code find()} or {@code get()} reads it back and moves it onto the
+ * heap, which may spill the least recently used value there. This suits maps with a long tail of values that are
+ * rarely read but can't be dropped. Every key stays on the heap, along with a small index entry for each spilled
+ * value, so this saves memory only when the values are large compared to their keys.
+ * <p>
+ * Spilled values are converted to bytes by a {@link ValueCodec} and appended to segment files. A value that is
+ * read back, replaced or removed leaves dead bytes in its segment. A segment with no live values left gets deleted,
+ * and once dead bytes make up more than half of the files, and more than one segment's worth, the live values get
+ * copied out of the segments holding dead bytes, which are then deleted. {@link #compact()} does that on demand.
+ * <p>
+ * The files are scratch space, not a persistent store. Closing the map deletes them. Null values are not allowed.
+ * The unsafe methods fail fast with a ClassCastException if they are given a key or value of the wrong type. Only
+ * lookups by key count toward the hit rates. The other methods, including iteration, never move values between
+ * the tiers. Methods that return a spilled value, including {@code put()} and {@code remove()}, read it from disk,
+ * and {@code containsValue()} reads every spilled value. I/O errors are thrown as UncheckedIOExceptions.
+ * <p>
+ * This class is not thread-safe.
+ * @param <K> The Key type
+ * @param <V> The Value type
+ */
+@SuppressWarnings("WeakerAccess")
+public final class TieredSafeMap<K, V> extends AbstractMap<K, V> implements SafeMap<K, V>, Closeable {
+	static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+	private final Class<K> keyClass;
+	private final Class<V> valueClass;
+	private final ValueCodec<V> codec;
+	private final int hotCapacity;
+	private final Path directory;
+	private final long segmentSize;
+	// In access order, so the eldest entry is the least recently used.
+	private final LinkedHashMap<K, V> hot = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<K, Location> cold = new HashMap<>();
+	private final List<Segment> segments = new ArrayList<>();
+	private Segment active = null; // the segment being appended to
+	private long deadBytes = 0L;
+	private long hotHits = 0L;
+	private long coldHits = 0L;
+	private long misses = 0L;
+	private boolean closed = false;
+	private EntrySet entrySet = null;
+
+	/**
+	 * @param keyClass The Key class instance
+	 * @param valueClass The value class instance
+	 * @param codec Converts values to and from the bytes written to disk
+	 * @param hotCapacity The most values to keep on the heap
+	 * @param directory The directory to write the segment files in
+	 */
+	public TieredSafeMap(Class<K> keyClass, Class<V> valueClass, ValueCodec<V> codec, int hotCapacity, Path directory) {
+		this(keyClass, valueClass, codec, hotCapacity, directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param segmentSize The size at which a new segment file gets started
+	 */
+	TieredSafeMap(
+			Class<K> keyClass,
+			Class<V> valueClass,
+			ValueCodec<V> codec,
+			int hotCapacity,
+			Path directory,
+			long segmentSize
+	) {
+		if (hotCapacity < 0) {
+			throw new IllegalArgumentException("Negative capacity: " + hotCapacity);
+		}
+		this.keyClass = keyClass;
+		this.valueClass = valueClass;
+		this.codec = codec;
+		this.hotCapacity = hotCapacity;
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * @return The number of lookups that found their value on the heap
+	 */
+	public long getHotHits() { return hotHits; }
+
+	/**
+	 * @return The number of lookups that found their value on disk
+	 */
+	public long getColdHits() { return coldHits; }
+
+	/**
+	 * @return The number of lookups that found no value
+	 */
+	public long getMisses() { return misses; }
+
+	/**
+	 * @return The fraction of lookups that found their value on the heap, or 0 if there have been no lookups
+	 */
+	public double getHotHitRate() {
+		return rate(hotHits);
+	}
+
+	/**
+	 * @return The fraction of lookups that found their value on disk, or 0 if there have been no lookups
+	 */
+	public double getColdHitRate() {
+		return rate(coldHits);
+	}
+
+	private double rate(long hits) {
+		long lookups = hotHits + coldHits + misses;
+		return (lookups == 0L) ? 0.0 : ((double) hits / lookups);
+	}
+
+	public void resetStats() {
+		hotHits = 0L;
+		coldHits = 0L;
+		misses = 0L;
+	}
+
+	/**
+	 * @return The number of values on the heap
+	 */
+	public int getHotSize() { return hot.size(); }
+
+	/**
+	 * @return The number of values on disk
+	 */
+	public int getColdSize() { return cold.size(); }
+
+	/**
+	 * @return The total size of the segment files, including dead bytes
+	 */
+	public long getDiskBytes() {
+		long total = 0L;
+		for (Segment segment : segments) {
+			total += segment.size;
+		}
+		return total;
+	}
+
+	@Override
+	public int size() {
+		return hot.size() + cold.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return hot.isEmpty() && cold.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		K k = keyClass.cast(key);
+		return hot.containsKey(k) || cold.containsKey(k);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		V v = valueClass.cast(value);
+		if (hot.containsValue(v)) {
+			return true;
+		}
+		checkOpen();
+		for (Location location : cold.values()) {
+			if (read(location).equals(v)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(Object key) {
+		K k = keyClass.cast(key);
+		checkOpen();
+		V value = hot.get(k);
+		if (value != null) {
+			hotHits++;
+			return value;
+		}
+		Location location = cold.remove(k);
+		if (location == null) {
+			misses++;
+			return null;
+		}
+		coldHits++;
+		value = read(location);
+		drop(location);
+		hot.put(k, value);
+		evict();
+		return value;
+	}
+
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		//noinspection deprecation
+		V value = get(key);
+		return (value == null) ? defaultValue : value;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		Objects.requireNonNull(value, "Null values are not allowed");
+		checkOpen();
+		V previous = hot.put(key, value);
+		if (previous == null) {
+			previous = removeCold(key);
+			evict();
+		}
+		return previous;
+	}
+
+	@Override
+	public V remove(Object key) {
+		K k = keyClass.cast(key);
+		checkOpen();
+		V previous = hot.remove(k);
+		return (previous == null) ? removeCold(k) : previous;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void clear() {
+		checkOpen();
+		hot.clear();
+		cold.clear();
+		closeSegments(segments);
+		segments.clear();
+		active = null;
+		deadBytes = 0L;
+	}
+
+	/**
+	 * Deletes the segment files. The map can't be used after it's closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		hot.clear();
+		cold.clear();
+		IOException failure = null;
+		for (Segment segment : segments) {
+			try {
+				segment.channel.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		segments.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	/**
+	 * Copies the live values out of every segment that holds dead bytes, then deletes those segments.
+	 */
+	public void compact() {
+		checkOpen();
+		List<Segment> victims = new ArrayList<>();
+		for (Segment segment : segments) {
+			if (segment.liveBytes < segment.size) {
+				segment.compacting = true;
+				victims.add(segment);
+			}
+		}
+		if (victims.isEmpty()) {
+			return;
+		}
+		active = null;
+		for (Location location : cold.values()) {
+			if (location.segment.compacting) {
+				byte[] bytes = readBytes(location);
+				location.segment.liveBytes -= bytes.length;
+				location.segment = segmentFor(bytes.length);
+				location.offset = location.segment.append(bytes);
+			}
+		}
+		segments.removeAll(victims);
+		closeSegments(victims);
+		deadBytes = 0L;
+		for (Segment segment : segments) {
+			deadBytes += segment.size - segment.liveBytes;
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Map is closed");
+		}
+	}
+
+	/**
+	 * Spills the least recently used values to disk until the heap holds no more than its capacity.
+	 */
+	private void evict() {
+		while (hot.size() > hotCapacity) {
+			Iterator<Entry<K, V>> iterator = hot.entrySet().iterator();
+			Entry<K, V> eldest = iterator.next();
+			iterator.remove();
+			cold.put(eldest.getKey(), write(eldest.getValue()));
+		}
+	}
+
+	private V removeCold(K key) {
+		Location location = cold.remove(key);
+		if (location == null) {
+			return null;
+		}
+		V value = read(location);
+		drop(location);
+		return value;
+	}
+
+	private Location write(V value) {
+		byte[] bytes = codec.encode(value);
+		Segment segment = segmentFor(bytes.length);
+		return new Location(segment, segment.append(bytes), bytes.length);
+	}
+
+	private V read(Location location) {
+		return codec.decode(readBytes(location));
+	}
+
+	private static byte[] readBytes(Location location) {
+		ByteBuffer buffer = ByteBuffer.allocate(location.length);
+		try {
+			while (buffer.hasRemaining()) {
+				if (location.segment.channel.read(buffer, location.offset + buffer.position()) < 0) {
+					throw new EOFException("Segment is truncated: " + location.segment.path);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Marks a spilled value as dead, after it has been taken out of the cold index.
+	 */
+	private void drop(Location location) {
+		Segment segment = location.segment;
+		segment.liveBytes -= location.length;
+		deadBytes += location.length;
+		if ((segment.liveBytes == 0L) && (segment != active)) {
+			segments.remove(segment);
+			deadBytes -= segment.size;
+			closeSegments(Collections.singletonList(segment));
+		} else if ((deadBytes > segmentSize) && ((2 * deadBytes) > getDiskBytes())) {
+			compact();
+		}
+	}
+
+	/**
+	 * @return The segment to append a value of the given length to, which is a new one if the active one is full
+	 */
+	private Segment segmentFor(int length) {
+		if ((active == null) || ((active.size > 0L) && ((active.size + length) > segmentSize))) {
+			try {
+				Path path = Files.createTempFile(directory, "tiered-", ".seg");
+				FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+						StandardOpenOption.DELETE_ON_CLOSE);
+				active = new Segment(path, channel);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			segments.add(active);
+		}
+		return active;
+	}
+
+	/**
+	 * Closes the segments, which deletes their files.
+	 */
+	private static void closeSegments(List<Segment> toClose) {
+		for (Segment segment : toClose) {
+			try {
+				segment.channel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Converts values to and from the bytes written to disk. decode(encode(value)) must equal the value.
+	 * @param <V> The Value type
+	 */
+	public interface ValueCodec<V> {
+		byte[] encode(V value);
+
+		V decode(byte[] bytes);
+
+		/**
+		 * @return A codec that writes Strings as UTF-8
+		 */
+		static ValueCodec<String> strings() {
+			return new ValueCodec<String>() {
+				@Override
+				public byte[] encode(String value) {
+					return value.getBytes(StandardCharsets.UTF_8);
+				}
+
+				@Override
+				public String decode(byte[] bytes) {
+					return new String(bytes, StandardCharsets.UTF_8);
+				}
+			};
+		}
+
+		/**
+		 * @param valueClass The value class instance
+		 * @param <V> The Value type
+		 * @return A codec that uses Java serialization, which works for any Serializable value, though not quickly
+		 */
+		static <V extends Serializable> ValueCodec<V> serializable(final Class<V> valueClass) {
+			return new ValueCodec<V>() {
+				@Override
+				public byte[] encode(V value) {
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+						out.writeObject(value);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					return bytes.toByteArray();
+				}
+
+				@Override
+				public V decode(byte[] bytes) {
+					try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+						return valueClass.cast(in.readObject());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					} catch (ClassNotFoundException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * The tier of the entry an iterator returned last, or NONE if it has no entry it may remove.
+	 */
+	private enum Tier { NONE, HOT, COLD }
+
+	/**
+	 * An append-only file of encoded values.
+	 */
+	private static final class Segment {
+		private final Path path;
+		private final FileChannel channel;
+		private long size = 0L;
+		private long liveBytes = 0L;
+		private boolean compacting = false;
+
+		private Segment(Path path, FileChannel channel) {
+			this.path = path;
+			this.channel = channel;
+		}
+
+		/**
+		 * @return The offset the bytes were written at
+		 */
+		private long append(byte[] bytes) {
+			long offset = size;
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			try {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, offset + buffer.position());
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			size += bytes.length;
+			liveBytes += bytes.length;
+			return offset;
+		}
+	}
+
+	/**
+	 * Where a spilled value lies. Compaction moves it, so the fields may change.
+	 */
+	private static final class Location {
+		private Segment segment;
+		private long offset;
+		private final int length;
+
+		private Location(Segment segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<K, V>> {
+		@Override
+		public int size() {
+			return TieredSafeMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			TieredSafeMap.this.clear();
+		}
+
+		/**
+		 * Iterates over the values on the heap, then those on disk, without moving any of them.
+		 */
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			checkOpen();
+			final Iterator<Entry<K, V>> hotIterator = hot.entrySet().iterator();
+			final Iterator<Entry<K, Location>> coldIterator = cold.entrySet().iterator();
+			return new Iterator<Entry<K, V>>() {
+				private Tier lastTier = Tier.NONE;
+				private Entry<K, Location> lastCold = null;
+
+				@Override
+				public boolean hasNext() {
+					return hotIterator.hasNext() || coldIterator.hasNext();
+				}
+
+				@Override
+				public Entry<K, V> next() {
+					if (hotIterator.hasNext()) {
+						Entry<K, V> entry = hotIterator.next();
+						lastTier = Tier.HOT;
+						return new HotEntry(entry);
+					}
+					lastCold = coldIterator.next();
+					lastTier = Tier.COLD;
+					return new ColdEntry(lastCold);
+				}
+
+				@Override
+				public void remove() {
+					switch (lastTier) {
+						case HOT:
+							hotIterator.remove();
+							break;
+						case COLD:
+							Location location = lastCold.getValue();
+							coldIterator.remove();
+							drop(location);
+							lastCold = null;
+							break;
+						default:
+							throw new IllegalStateException();
+					}
+					lastTier = Tier.NONE;
+				}
+			};
+		}
+	}
+
+	private abstract class TierEntry implements Entry<K, V> {
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ getValue().hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> other = (Entry<?, ?>) obj;
+			return Objects.equals(getKey(), other.getKey()) && getValue().equals(other.getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	private final class HotEntry extends TierEntry {
+		private final Entry<K, V> entry;
+
+		private HotEntry(Entry<K, V> entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public K getKey() {
+			return entry.getKey();
+		}
+
+		@Override
+		public V getValue() {
+			return entry.getValue();
+		}
+
+		@Override
+		public V setValue(V value) {
+			return entry.setValue(Objects.requireNonNull(value, "Null values are not allowed"));
+		}
+	}
+
+	/**
+	 * An entry on disk. Its value is read each time it's asked for.
+	 */
+	private final class ColdEntry extends TierEntry {
+		private final Entry<K, Location> entry;
+
+		private ColdEntry(Entry<K, Location> entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public K getKey() {
+			return entry.getKey();
+		}
+
+		@Override
+		public V getValue() {
+			return read(entry.getValue());
+		}
+
+		@Override
+		public V setValue(V value) {
+			Objects.requireNonNull(value, "Null values are not allowed");
+			Location location = entry.getValue();
+			V previous = read(location);
+			entry.setValue(write(value));
+			drop(location);
+			return previous;
+		}
+	}
+}
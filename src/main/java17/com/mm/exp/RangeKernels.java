@@ -0,0 +1,101 @@
+package com.mm.exp;
+
+/**
+ * The loops that find the min and max of primitive arrays, for {@link Range}. The arrays are never empty.
+ * <p>
+ * This is the Java 17 version, which Java 17 and later runtimes load from META-INF/versions/17 of the jar in place
+ * of the Java 8 version in src/main/java. Its results must be identical.
+ * <p>
+ * Only the double loops differ. The Java 8 loops also check on every element whether they have seen a number yet,
+ * so a NaN at the start isn't taken as the result. These start from an infinity instead, which a NaN never
+ * replaces, since every comparison with NaN is false. That makes the loop body a single compare and select, which
+ * runs about twice as fast on Java 17 (see TestRange.primitiveSpeedTest). If the result is still the infinity it
+ * started from, the array gets scanned again the Java 8 way, to tell an array of NaNs from one holding the
+ * infinity. The int and long loops are the same as the Java 8 ones, since folding them with Math.min and Math.max
+ * was measured to be slower.
+ */
+final class RangeKernels {
+  private RangeKernels() { }
+
+  static int max(int[] data) {
+    int max = data[0];
+    for (int i = 1; i < data.length; ++i) {
+      if (data[i] > max) {
+        max = data[i];
+      }
+    }
+    return max;
+  }
+
+  static int min(int[] data) {
+    int min = data[0];
+    for (int i = 1; i < data.length; ++i) {
+      if (data[i] < min) {
+        min = data[i];
+      }
+    }
+    return min;
+  }
+
+  static long max(long[] data) {
+    long max = data[0];
+    for (int i = 1; i < data.length; ++i) {
+      if (data[i] > max) {
+        max = data[i];
+      }
+    }
+    return max;
+  }
+
+  static long min(long[] data) {
+    long min = data[0];
+    for (int i = 1; i < data.length; ++i) {
+      if (data[i] < min) {
+        min = data[i];
+      }
+    }
+    return min;
+  }
+
+  /**
+   * NaN values are ignored, unless every value is NaN. Of a zero and a negative zero, whichever comes first wins.
+   */
+  static double max(double[] data) {
+    double max = Double.NEGATIVE_INFINITY;
+    for (double value : data) {
+      max = (value > max) ? value : max;
+    }
+    return (max == Double.NEGATIVE_INFINITY) ? scalarMax(data) : max;
+  }
+
+  /**
+   * NaN values are ignored, unless every value is NaN. Of a zero and a negative zero, whichever comes first wins.
+   */
+  static double min(double[] data) {
+    double min = Double.POSITIVE_INFINITY;
+    for (double value : data) {
+      min = (value < min) ? value : min;
+    }
+    return (min == Double.POSITIVE_INFINITY) ? scalarMin(data) : min;
+  }
+
+  private static double scalarMax(double[] data) {
+    double max = Double.NaN;
+    for (double value : data) {
+      if (value > max || max != max) {
+        max = value;
+      }
+    }
+    return max;
+  }
+
+  private static double scalarMin(double[] data) {
+    double min = Double.NaN;
+    for (double value : data) {
+      if (value < min || min != min) {
+        min = value;
+      }
+    }
+    return min;
+  }
+}
@@ -0,0 +1,62 @@
+package com.mm.exp;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Assume;
+
+/**
+ * Measures the bytes allocated by the current thread, using the HotSpot extension of ThreadMXBean. Tests that
+ * use this should call {@link #assumeSupported()} first, so they get skipped on JVMs that can't measure allocation.
+ * <p>
+ * The measurement covers many calls of the same operation, so a stray allocation made by the JVM itself doesn't
+ * fail the test, while a single allocation per call always does.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class AllocationMeter {
+  public static final int WARM_UP_CALLS = 20_000;
+  public static final int MEASURED_CALLS = 10_000;
+
+  private static final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+  
+  private AllocationMeter() { }
+
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+      if (sunBean.isThreadAllocatedMemorySupported()) {
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+        return sunBean;
+      }
+    }
+    return null;
+  }
+
+  public static void assumeSupported() {
+    Assume.assumeTrue("Thread allocation measurement is not supported", threadBean != null);
+  }
+
+  /**
+   * Runs the operation {@link #WARM_UP_CALLS} times, then returns the average number of bytes allocated by each of
+   * the next {@link #MEASURED_CALLS} calls. The cost of reading the counter is subtracted out.
+   * @param operation The operation to measure
+   * @return The bytes allocated per call
+   */
+  public static double bytesPerCall(Runnable operation) {
+    for (int i = 0; i < WARM_UP_CALLS; ++i) {
+      operation.run();
+    }
+    long overhead = allocatedBytes();
+    overhead = allocatedBytes() - overhead;
+
+    long start = allocatedBytes();
+    for (int i = 0; i < MEASURED_CALLS; ++i) {
+      operation.run();
+    }
+    long allocated = allocatedBytes() - start - overhead;
+    return Math.max(0L, allocated) / (double) MEASURED_CALLS;
+  }
+
+  private static long allocatedBytes() {
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,153 @@
+package com.mm.exp;
+
+import com.mm.exp.MappedColumnScanner.ColumnType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"MagicNumber", "HardCodedStringLiteral"})
+public class TestMappedColumnScanner {
+  private static final int COUNT = 10_001;
+  
+  // Small enough that the test files span many chunks, including a short last chunk.
+  private final MappedColumnScanner scanner = new MappedColumnScanner(256);
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = Files.createTempFile("column", ".bin");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testInts() throws IOException {
+    for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      Random random = new Random(11L);
+      int[] data = new int[COUNT];
+      ByteBuffer buffer = ByteBuffer.allocate(COUNT * Integer.BYTES).order(order);
+      for (int i = 0; i < COUNT; ++i) {
+        data[i] = random.nextInt();
+        buffer.putInt(data[i]);
+      }
+      Files.write(file, buffer.array());
+      
+      long[] minMax = scanner.scanIntegral(file, ColumnType.INT, order);
+      assertEquals(Range.getMin(data), minMax[0]);
+      assertEquals(Range.getMax(data), minMax[1]);
+
+      Range<Integer> range = Range.getIntegerRange(file, order);
+      assertEquals(Range.getMin(data), range.getMin().intValue());
+      assertEquals(Range.getMax(data), range.getMax().intValue());
+    }
+  }
+
+  @Test
+  public void testLongs() throws IOException {
+    Random random = new Random(12L);
+    long[] data = new long[COUNT];
+    ByteBuffer buffer = ByteBuffer.allocate(COUNT * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < COUNT; ++i) {
+      data[i] = random.nextLong();
+      buffer.putLong(data[i]);
+    }
+    Files.write(file, buffer.array());
+
+    long[] minMax = scanner.scanIntegral(file, ColumnType.LONG, ByteOrder.LITTLE_ENDIAN);
+    assertEquals(Range.getMin(data), minMax[0]);
+    assertEquals(Range.getMax(data), minMax[1]);
+  }
+
+  @Test
+  public void testFloats() throws IOException {
+    Random random = new Random(13L);
+    float min = Float.MAX_VALUE;
+    float max = -Float.MAX_VALUE;
+    ByteBuffer buffer = ByteBuffer.allocate(COUNT * Float.BYTES);
+    for (int i = 0; i < COUNT; ++i) {
+      float value = (i % 7 == 0) ? Float.NaN : (float) random.nextGaussian();
+      if (value == value) {
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      buffer.putFloat(value);
+    }
+    Files.write(file, buffer.array());
+
+    Range<Float> range = Range.getFloatRange(file, ByteOrder.BIG_ENDIAN);
+    assertEquals(min, range.getMin(), 0.0f);
+    assertEquals(max, range.getMax(), 0.0f);
+  }
+
+  @Test
+  public void testDoubles() throws IOException {
+    Random random = new Random(14L);
+    double[] data = new double[COUNT];
+    ByteBuffer buffer = ByteBuffer.allocate(COUNT * Double.BYTES);
+    for (int i = 0; i < COUNT; ++i) {
+      // The first chunk is all NaN.
+      data[i] = (i < 32) ? Double.NaN : random.nextGaussian();
+      buffer.putDouble(data[i]);
+    }
+    Files.write(file, buffer.array());
+
+    double[] minMax = scanner.scanFloatingPoint(file, ColumnType.DOUBLE, ByteOrder.BIG_ENDIAN);
+    assertEquals(Range.getMin(data), minMax[0], 0.0);
+    assertEquals(Range.getMax(data), minMax[1], 0.0);
+  }
+
+  @Test
+  public void testCallerSuppliedExecutor() throws IOException {
+    Random random = new Random(15L);
+    long[] data = new long[COUNT];
+    ByteBuffer buffer = ByteBuffer.allocate(COUNT * Long.BYTES);
+    for (int i = 0; i < COUNT; ++i) {
+      data[i] = random.nextLong();
+      buffer.putLong(data[i]);
+    }
+    Files.write(file, buffer.array());
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      AtomicInteger workers = new AtomicInteger();
+      Executor counting = task -> {
+        workers.incrementAndGet();
+        executor.execute(task);
+      };
+      MappedColumnScanner limited = new MappedColumnScanner(256, counting, 3);
+      long[] minMax = limited.scanIntegral(file, ColumnType.LONG, ByteOrder.BIG_ENDIAN);
+      assertEquals(Range.getMin(data), minMax[0]);
+      assertEquals(Range.getMax(data), minMax[1]);
+      // Hundreds of chunks, but no more workers, and so no more mapped chunks, than the limit.
+      assertEquals(3, workers.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEmptyFile() throws IOException {
+    Range.getDoubleRange(file, ByteOrder.BIG_ENDIAN);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPartialValue() throws IOException {
+    Files.write(file, new byte[6]);
+    Range.getIntegerRange(file, ByteOrder.BIG_ENDIAN);
+  }
+}
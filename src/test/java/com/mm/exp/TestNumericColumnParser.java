@@ -0,0 +1,127 @@
+package com.mm.exp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"MagicNumber", "HardCodedStringLiteral"})
+public class TestNumericColumnParser {
+
+  @Test
+  public void testCsvColumns() throws IOException {
+    String csv = "name,price,qty\r\n"
+        + "apple, 1.25 ,10\r\n"
+        + "\"pear, green\",-3.5e2,\"7\"\r\n"
+        + "\r\n"
+        + "plum,,+4\n"
+        + "fig,.5,0";
+    NumericColumnParser parser = new NumericColumnParser(',', true, 2, 1);
+    RangeAccumulator[] ranges = parser.parseRanges(stream(csv));
+    assertEquals(0.0, ranges[0].getMin(), 0.0);
+    assertEquals(10.0, ranges[0].getMax(), 0.0);
+    assertEquals(4, ranges[0].getCount());
+    assertEquals(-350.0, ranges[1].getMin(), 0.0);
+    assertEquals(1.25, ranges[1].getMax(), 0.0);
+    assertEquals(3, ranges[1].getCount());
+  }
+
+  @Test
+  public void testEveryBufferBoundary() throws IOException {
+    String tsv = "a\tb\n-12.5\t3e-3\n1234567.125\t-0.00075\n7\t12E+2\n";
+    for (int bufferSize = 1; bufferSize <= tsv.length(); ++bufferSize) {
+      NumericColumnParser parser = new NumericColumnParser('\t', true, new int[] {0, 1}, bufferSize);
+      List<Double> first = new ArrayList<>();
+      List<Double> second = new ArrayList<>();
+      parser.parse(Channels.newChannel(stream(tsv)), first::add, second::add);
+      assertEquals(String.valueOf(bufferSize), listOf(-12.5, 1234567.125, 7.0), first);
+      assertEquals(String.valueOf(bufferSize), listOf(0.003, -0.00075, 1200.0), second);
+    }
+  }
+
+  @Test
+  public void testMatchesParseDouble() throws IOException {
+    Random random = new Random(21L);
+    StringBuilder text = new StringBuilder();
+    List<Double> expected = new ArrayList<>();
+    for (int i = 0; i < 5000; ++i) {
+      String value;
+      switch (i % 4) {
+        case 0: value = Double.toString(random.nextGaussian() * 1000.0); break;
+        case 1: value = String.format("%.3f", random.nextDouble() * 100.0); break;
+        case 2: value = Long.toString(random.nextLong()); break;
+        default: value = Double.toString(Double.longBitsToDouble(random.nextLong())); break;
+      }
+      expected.add(Double.parseDouble(value));
+      text.append(value).append('\n');
+    }
+    List<Double> actual = new ArrayList<>();
+    NumericColumnParser.lines(false).parse(stream(text.toString()), actual::add);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testPath() throws IOException {
+    Path file = Files.createTempFile("columns", ".csv");
+    try {
+      Files.write(file, "x\n3\n-1\n2\n".getBytes(StandardCharsets.US_ASCII));
+      Range<Double> range = NumericColumnParser.lines(true).parseRanges(file)[0].toRange();
+      assertEquals(-1.0, range.getMin(), 0.0);
+      assertEquals(3.0, range.getMax(), 0.0);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testBadValue() throws IOException {
+    try {
+      new NumericColumnParser(',', false, 1).parseRanges(stream("a,1\nb,1 2\n"));
+      fail();
+    } catch (NumberFormatException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2, column 1"));
+    }
+  }
+
+  @Test
+  public void testParseAllocatesPerParseNotPerField() throws IOException {
+    AllocationMeter.assumeSupported();
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 500; ++i) {
+      text.append(i).append(",-").append(i).append(".25\n");
+    }
+    byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+    NumericColumnParser parser = new NumericColumnParser(',', false, new int[] {0, 1}, 1024);
+    RangeAccumulator first = new RangeAccumulator();
+    RangeAccumulator second = new RangeAccumulator();
+    double perParse = AllocationMeter.bytesPerCall(() -> {
+      try {
+        parser.parse(new ByteArrayInputStream(bytes), first, second);
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    });
+    // The buffer, the cursor and the stream. Boxing the 1000 values alone would take 16K.
+    assertTrue(perParse + " bytes per parse", perParse < 2048.0);
+  }
+
+  private static ByteArrayInputStream stream(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static List<Double> listOf(double... values) {
+    List<Double> list = new ArrayList<>();
+    for (double value : values) {
+      list.add(value);
+    }
+    return list;
+  }
+}
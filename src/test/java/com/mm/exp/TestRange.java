@@ -113,6 +113,103 @@ public class TestRange {
     assertEquals(12, range.getMax().intValue());
   }
 
+  @Test
+  public void testPrimitiveArrays() {
+    int[] ints = {3, -500, 5000, 12};
+    assertEquals(-500, Range.getMin(ints));
+    assertEquals(5000, Range.getMax(ints));
+    Range<Integer> intRange = Range.getIntegerRange(ints);
+    assertEquals(-500, intRange.getMin().intValue());
+    assertEquals(5000, intRange.getMax().intValue());
+
+    long[] longs = {Long.MAX_VALUE, 0L, Long.MIN_VALUE};
+    Range<Long> longRange = Range.getLongRange(longs);
+    assertEquals(Long.MIN_VALUE, longRange.getMin().longValue());
+    assertEquals(Long.MAX_VALUE, longRange.getMax().longValue());
+
+    double[] doubles = {Double.NaN, 2.5, -7.25, Double.NaN, 1.0};
+    Range<Double> doubleRange = Range.getDoubleRange(doubles);
+    assertEquals(-7.25, doubleRange.getMin(), 0.0);
+    assertEquals(2.5, doubleRange.getMax(), 0.0);
+
+    Range<Integer> single = Range.getIntegerRange(new int[] {42});
+    assertEquals(42, single.getMin().intValue());
+    assertEquals(42, single.getMax().intValue());
+  }
+
+  /**
+   * The packaged jar has a second version of the primitive kernels for newer runtimes. These are the cases where
+   * its results could differ from the Java 8 version.
+   */
+  @Test
+  public void testPrimitiveEdgeCases() {
+    double[] allNaN = {Double.NaN, Double.NaN};
+    assertTrue(Double.isNaN(Range.getMin(allNaN)));
+    assertTrue(Double.isNaN(Range.getMax(allNaN)));
+
+    double[] zeros = {0.0, -0.0};
+    assertEquals(Double.doubleToLongBits(0.0), Double.doubleToLongBits(Range.getMin(zeros)));
+    assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(Range.getMin(new double[] {-0.0, 0.0})));
+    assertEquals(Double.doubleToLongBits(0.0), Double.doubleToLongBits(Range.getMax(zeros)));
+
+    double[] infinities = {Double.POSITIVE_INFINITY, Double.NaN, Double.NEGATIVE_INFINITY};
+    assertEquals(Double.NEGATIVE_INFINITY, Range.getMin(infinities), 0.0);
+    assertEquals(Double.POSITIVE_INFINITY, Range.getMax(infinities), 0.0);
+    assertEquals(Double.POSITIVE_INFINITY, Range.getMin(new double[] {Double.POSITIVE_INFINITY}), 0.0);
+
+    Random random = new Random(35L);
+    int[] ints = new int[1001];
+    long[] longs = new long[1001];
+    for (int i = 0; i < ints.length; ++i) {
+      ints[i] = random.nextInt();
+      longs[i] = random.nextLong();
+    }
+    ints[500] = Integer.MIN_VALUE;
+    longs[500] = Long.MAX_VALUE;
+    int[] sortedInts = ints.clone();
+    Arrays.sort(sortedInts);
+    long[] sortedLongs = longs.clone();
+    Arrays.sort(sortedLongs);
+    assertEquals(Integer.MIN_VALUE, Range.getMin(ints));
+    assertEquals(sortedInts[sortedInts.length - 1], Range.getMax(ints));
+    assertEquals(sortedLongs[0], Range.getMin(longs));
+    assertEquals(Long.MAX_VALUE, Range.getMax(longs));
+  }
+
+  @Test
+  public void testLargeLongOrder() {
+    // These two differ by one, but convert to the same double.
+    long big = (1L << 60) + 1L;
+    Range<Long> range = new Range<>(big - 1L, big);
+    assertEquals(big - 1L, range.getMin().longValue());
+    assertEquals(big, range.getMax().longValue());
+    assertEquals(range, new Range<>(big, big - 1L));
+    assertEquals(range.hashCode(), new Range<>(big, big - 1L).hashCode());
+    assertNotEquals(range, new Range<>(big - 1L, big + 1L));
+  }
+
+  @Test
+  public void testSignedZeroAndNaNOrder() {
+    // Doubles are ordered by compareTo(), so -0.0 is below 0.0 and NaN is above everything, in either argument order.
+    for (Range<Double> range : Arrays.asList(new Range<>(0.0, -0.0), new Range<>(-0.0, 0.0))) {
+      assertEquals(Double.valueOf(-0.0), range.getMin());
+      assertEquals(Double.valueOf(0.0), range.getMax());
+    }
+    for (Range<Double> range : Arrays.asList(new Range<>(Double.NaN, 1.0), new Range<>(1.0, Double.NaN))) {
+      assertEquals(Double.valueOf(1.0), range.getMin());
+      assertEquals(Double.valueOf(Double.NaN), range.getMax());
+    }
+    assertEquals(new Range<>(Double.NaN, 1.0), new Range<>(1.0, Double.NaN));
+    Range<Float> floats = new Range<>(Float.NaN, -0.0f);
+    assertEquals(Float.valueOf(-0.0f), floats.getMin());
+    assertEquals(Float.valueOf(Float.NaN), floats.getMax());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEmptyPrimitiveArray() {
+    Range.getIntegerRange(new int[0]);
+  }
+
   @Ignore
   @Test
   public void speedTest() {
@@ -132,6 +229,46 @@ public class TestRange {
     }
   }
   
+  /**
+   * Times the primitive kernels. Run it once against target/classes and once against the packaged jar, on Java 17
+   * or later, to compare the Java 8 kernels with the Java 17 ones. On Temurin 17, 300 calls each of getMax and
+   * getMin of the double array took about 80 ms from the jar, and about 175 ms with the Java 8 kernels.
+   */
+  @Ignore
+  @Test
+  public void primitiveSpeedTest() {
+    Random random = new Random(35L);
+    int[] ints = new int[1_000_000];
+    long[] longs = new long[ints.length];
+    double[] doubles = new double[ints.length];
+    for (int i = 0; i < ints.length; ++i) {
+      ints[i] = random.nextInt();
+      longs[i] = random.nextLong();
+      doubles[i] = random.nextGaussian();
+    }
+    long sink = 0L;
+    for (int round = 0; round < 10; ++round) {
+      long start = System.nanoTime();
+      for (int i = 0; i < 300; ++i) {
+        sink += Range.getMax(ints) + Range.getMin(ints);
+      }
+      long intTime = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < 300; ++i) {
+        sink += Range.getMax(longs) + Range.getMin(longs);
+      }
+      long longTime = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < 300; ++i) {
+        sink += (long) (Range.getMax(doubles) + Range.getMin(doubles));
+      }
+      long doubleTime = System.nanoTime() - start;
+      System.out.printf("int: %d ms, long: %d ms, double: %d ms%n",
+          intTime / 1_000_000L, longTime / 1_000_000L, doubleTime / 1_000_000L);
+    }
+    System.out.println(sink);
+  }
+
   private <T extends Number> long time(Function<List<T>, Range<T>> function, List<T> theList) {
     long start = System.currentTimeMillis();
     Range<T> integerRange = function.apply(theList);
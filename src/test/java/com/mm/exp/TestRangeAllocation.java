@@ -0,0 +1,90 @@
+package com.mm.exp;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that the primitive Range computations don't box, and don't create iterators or lambdas. A failure
+ * here means one of these methods now allocates on every call.
+ */
+@SuppressWarnings({"MagicNumber", "HardCodedStringLiteral"})
+public class TestRangeAllocation {
+  private static final int SIZE = 1000;
+  
+  private final int[] ints = new int[SIZE];
+  private final long[] longs = new long[SIZE];
+  private final double[] doubles = new double[SIZE];
+  
+  // Results go here, so the JIT can't discard the calls.
+  private long sink;
+
+  @Before
+  public void setUp() {
+    AllocationMeter.assumeSupported();
+    Random random = new Random(17L);
+    for (int i = 0; i < SIZE; ++i) {
+      ints[i] = random.nextInt();
+      longs[i] = random.nextLong();
+      doubles[i] = random.nextGaussian();
+    }
+  }
+
+  @Test
+  public void testIntMinMax() {
+    assertNoAllocation("getMin(int[])", () -> sink += Range.getMin(ints));
+    assertNoAllocation("getMax(int[])", () -> sink += Range.getMax(ints));
+  }
+
+  @Test
+  public void testLongMinMax() {
+    assertNoAllocation("getMin(long[])", () -> sink += Range.getMin(longs));
+    assertNoAllocation("getMax(long[])", () -> sink += Range.getMax(longs));
+  }
+
+  @Test
+  public void testDoubleMinMax() {
+    assertNoAllocation("getMin(double[])", () -> sink += (long) Range.getMin(doubles));
+    assertNoAllocation("getMax(double[])", () -> sink += (long) Range.getMax(doubles));
+  }
+
+  @Test
+  public void testRangeWindow() {
+    RangeWindow window = RangeWindow.ofDuration(500L, SIZE);
+    long[] time = {0L};
+    assertNoAllocation("RangeWindow.add", () -> {
+      window.add(time[0]++, doubles[(int) (time[0] % SIZE)]);
+      sink += (long) window.getMax();
+    });
+  }
+
+  @Test
+  public void testRangeStats() {
+    RangeStats stats = RangeStats.of(doubles);
+    int[] index = {0};
+    assertNoAllocation("RangeStats.accept", () -> stats.accept(doubles[index[0]++ % SIZE]));
+  }
+
+  /**
+   * The primitive getXxxRange() methods must allocate the result, but nothing that grows with the data.
+   */
+  @Test
+  public void testPrimitiveRangeDoesNotScaleWithData() {
+    assertBounded("getIntegerRange(int[])", () -> sink += Range.getIntegerRange(ints).getMax());
+    assertBounded("getLongRange(long[])", () -> sink += Range.getLongRange(longs).getMax());
+    assertBounded("getDoubleRange(double[])", () -> sink += Range.getDoubleRange(doubles).getMax().longValue());
+  }
+
+  private static void assertNoAllocation(String name, Runnable operation) {
+    double bytes = AllocationMeter.bytesPerCall(operation);
+    assertTrue(String.format("%s allocated %.2f bytes per call", name, bytes), bytes < 1.0);
+  }
+
+  private static void assertBounded(String name, Runnable operation) {
+    // A Range and two boxed values, with generous room for object headers. Boxing each element would be 16K.
+    double bytes = AllocationMeter.bytesPerCall(operation);
+    assertTrue(String.format("%s allocated %.2f bytes per call", name, bytes), bytes <= 128.0);
+  }
+}
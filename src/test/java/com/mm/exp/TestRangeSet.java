@@ -0,0 +1,120 @@
+package com.mm.exp;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"MagicNumber", "HardCodedStringLiteral"})
+public class TestRangeSet {
+  private static final int DOMAIN = 2000;
+
+  @Test
+  public void testMatchesBitSet() {
+    Random random = new Random(41L);
+    for (int trial = 0; trial < 50; ++trial) {
+      BitSet firstBits = new BitSet();
+      BitSet secondBits = new BitSet();
+      LongRangeSet first = randomSet(random, firstBits);
+      LongRangeSet second = randomSet(random, secondBits);
+      verify(firstBits, first);
+
+      BitSet union = (BitSet) firstBits.clone();
+      union.or(secondBits);
+      verify(union, first.union(second));
+
+      BitSet intersection = (BitSet) firstBits.clone();
+      intersection.and(secondBits);
+      verify(intersection, first.intersect(second));
+
+      // Within the test domain, the complement holds everything not in the set.
+      BitSet complement = (BitSet) firstBits.clone();
+      complement.flip(0, DOMAIN);
+      LongRangeSet domain = new LongRangeSet();
+      domain.add(0L, DOMAIN - 1L);
+      verify(complement, first.complement().intersect(domain));
+
+      int min = random.nextInt(DOMAIN);
+      int max = Math.min(DOMAIN - 1, min + random.nextInt(200));
+      firstBits.clear(min, max + 1);
+      first.remove(max, min);
+      verify(firstBits, first);
+    }
+  }
+
+  private static LongRangeSet randomSet(Random random, BitSet bits) {
+    List<Range<Long>> ranges = new ArrayList<>();
+    for (int i = 0; i < 40; ++i) {
+      int min = random.nextInt(DOMAIN);
+      int max = Math.min(DOMAIN - 1, min + random.nextInt(60));
+      bits.set(min, max + 1);
+      ranges.add(new Range<>((long) min, (long) max));
+    }
+    LongRangeSet bulk = LongRangeSet.of(ranges);
+    LongRangeSet incremental = new LongRangeSet();
+    Collections.shuffle(ranges, random);
+    for (Range<Long> range : ranges) {
+      incremental.add(range);
+    }
+    assertEquals(bulk, incremental);
+    return bulk;
+  }
+
+  private static void verify(BitSet expected, LongRangeSet set) {
+    for (int i = -1; i <= DOMAIN; ++i) {
+      assertEquals(String.valueOf(i), (i >= 0) && expected.get(i), set.contains(i));
+    }
+    // Coalesced: every gap between intervals holds at least one missing value.
+    List<Range<Long>> ranges = set.toRanges();
+    for (int i = 1; i < ranges.size(); ++i) {
+      assertTrue(set.toString(), ranges.get(i).getMin() > ranges.get(i - 1).getMax() + 1L);
+    }
+  }
+
+  @Test
+  public void testLongExtremes() {
+    LongRangeSet set = new LongRangeSet();
+    set.add(Long.MAX_VALUE - 1L, Long.MAX_VALUE);
+    set.add(Long.MIN_VALUE, 0L);
+    assertTrue(set.contains(Long.MIN_VALUE));
+    assertTrue(set.contains(Long.MAX_VALUE));
+    assertFalse(set.contains(1L));
+    LongRangeSet complement = set.complement();
+    assertEquals(Collections.singletonList(new Range<>(1L, Long.MAX_VALUE - 2L)), complement.toRanges());
+    assertTrue(complement.complement().equals(set));
+    assertEquals(Collections.singletonList(new Range<>(Long.MIN_VALUE, Long.MAX_VALUE)),
+        new LongRangeSet().complement().toRanges());
+  }
+
+  @Test
+  public void testDoubles() {
+    List<Range<Double>> ranges = new ArrayList<>();
+    ranges.add(new Range<>(1.0, 2.0));
+    ranges.add(new Range<>(-3.0, -0.0));
+    ranges.add(new Range<>(Math.nextUp(2.0), 5.0)); // touches [1, 2], so they get coalesced
+    DoubleRangeSet set = DoubleRangeSet.of(ranges);
+    assertEquals(2, set.rangeCount());
+    assertTrue(set.contains(-0.0));
+    assertTrue(set.contains(0.0));
+    assertTrue(set.contains(4.5));
+    assertFalse(set.contains(0.5));
+    assertFalse(set.contains(Double.NaN));
+
+    DoubleRangeSet complement = set.complement();
+    assertTrue(complement.contains(Math.nextUp(0.0)));
+    assertTrue(complement.contains(Math.nextDown(1.0)));
+    assertFalse(complement.contains(1.0));
+    assertTrue(complement.contains(Double.NEGATIVE_INFINITY));
+    assertEquals(Double.MIN_VALUE, complement.toRanges().get(1).getMin(), 0.0);
+
+    set.remove(-1.0, 1.5);
+    assertFalse(set.contains(0.0));
+    assertTrue(set.contains(Math.nextDown(-1.0)));
+    assertEquals(set, set.union(new DoubleRangeSet()));
+    assertTrue(set.intersect(complement).isEmpty());
+  }
+}
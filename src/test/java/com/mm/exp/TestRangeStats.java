@@ -0,0 +1,139 @@
+package com.mm.exp;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"MagicNumber", "HardCodedStringLiteral"})
+public class TestRangeStats {
+
+  @Test
+  public void testMatchesSeparatePasses() {
+    Random random = new Random(61L);
+    double[] data = new double[100_000];
+    for (int i = 0; i < data.length; ++i) {
+      // Large mean, small spread: naive sum-of-squares variance would lose most of its digits here.
+      data[i] = 1.0e9 + random.nextGaussian();
+    }
+    double sum = 0.0;
+    for (double value : data) {
+      sum += value;
+    }
+    double mean = sum / data.length;
+    double squares = 0.0;
+    for (double value : data) {
+      squares += (value - mean) * (value - mean);
+    }
+
+    RangeStats stats = RangeStats.of(data);
+    assertEquals(data.length, stats.getCount());
+    assertEquals(Range.getMin(data), stats.getMin(), 0.0);
+    assertEquals(Range.getMax(data), stats.getMax(), 0.0);
+    assertEquals(mean, stats.getMean(), mean * 1.0e-14);
+    assertEquals(squares / data.length, stats.getVariance(), 1.0e-6);
+    assertEquals(squares / (data.length - 1), stats.getSampleVariance(), 1.0e-6);
+    assertEquals(Range.getDoubleRange(data).getMin(), stats.toRange().getMin());
+  }
+
+  @Test
+  public void testMergeMatchesSinglePass() {
+    Random random = new Random(62L);
+    double[] data = new double[50_000];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = random.nextGaussian() * 50.0 + 10.0;
+    }
+    RangeStats single = RangeStats.of(data);
+    RangeStats parallel = RangeStats.ofParallel(data);
+    RangeStats merged = RangeStats.of(Arrays.copyOfRange(data, 0, 20_000));
+    merged.merge(RangeStats.of(Arrays.copyOfRange(data, 20_000, data.length)));
+    merged.merge(new RangeStats());
+
+    for (RangeStats stats : new RangeStats[] {parallel, merged}) {
+      assertEquals(single.getCount(), stats.getCount());
+      assertEquals(single.getMin(), stats.getMin(), 0.0);
+      assertEquals(single.getMax(), stats.getMax(), 0.0);
+      assertEquals(single.getSum(), stats.getSum(), 1.0e-6);
+      assertEquals(single.getMean(), stats.getMean(), 1.0e-9);
+      assertEquals(single.getVariance(), stats.getVariance(), 1.0e-6);
+      // Merged sketches hold exactly the same bucket counts.
+      assertEquals(single.getP50(), stats.getP50(), 0.0);
+      assertEquals(single.getP99(), stats.getP99(), 0.0);
+      assertEquals(single.getP999(), stats.getP999(), 0.0);
+    }
+  }
+
+  @Test
+  public void testQuantileAccuracy() {
+    Random random = new Random(63L);
+    double[] data = new double[100_001];
+    for (int i = 0; i < data.length; ++i) {
+      // Values spanning many orders of magnitude, of both signs, and some zeros.
+      double magnitude = Math.exp(random.nextGaussian() * 5.0);
+      data[i] = (i % 10 == 0) ? 0.0 : ((i % 3 == 0) ? -magnitude : magnitude);
+    }
+    RangeStats stats = RangeStats.of(data);
+    double[] sorted = data.clone();
+    Arrays.sort(sorted);
+    for (double quantile : new double[] {0.0, 0.001, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1.0}) {
+      double expected = sorted[(int) (quantile * (sorted.length - 1))];
+      double estimate = stats.getQuantile(quantile);
+      assertEquals(String.valueOf(quantile), expected, estimate, Math.abs(expected) * 0.01);
+    }
+  }
+
+  @Test
+  public void testBoundedBuckets() {
+    QuantileSketch sketch = new QuantileSketch(0.01, QuantileSketch.DEFAULT_MAX_BUCKETS);
+    for (int exponent = -300; exponent <= 300; ++exponent) {
+      sketch.accept(Math.pow(10.0, exponent));
+    }
+    sketch.accept(Double.POSITIVE_INFINITY);
+    // The buckets span about 17 orders of magnitude, so the top quantiles stay accurate, while the lowest buckets
+    // have been folded together.
+    assertEquals(1.0e300, sketch.getQuantile(600.0 / 601.0), 1.0e300 * 0.01);
+    assertEquals(1.0e295, sketch.getQuantile(595.0 / 601.0), 1.0e295 * 0.01);
+    assertTrue(sketch.getQuantile(0.0) > 1.0e280);
+    assertEquals(602, sketch.getCount());
+  }
+
+  @Test
+  public void testPrimitiveAndBoxedInputs() {
+    RangeStats ints = RangeStats.of(new int[] {3, -1, 4});
+    RangeStats longs = RangeStats.of(new long[] {3L, -1L, 4L});
+    RangeStats boxed = RangeStats.of(Arrays.asList(3, -1, 4));
+    for (RangeStats stats : new RangeStats[] {ints, longs, boxed}) {
+      assertEquals(3, stats.getCount());
+      assertEquals(-1.0, stats.getMin(), 0.0);
+      assertEquals(4.0, stats.getMax(), 0.0);
+      assertEquals(6.0, stats.getSum(), 0.0);
+      assertEquals(2.0, stats.getMean(), 0.0);
+    }
+    RangeStats withNaN = RangeStats.of(new double[] {Double.NaN, 1.0});
+    assertEquals(1, withNaN.getCount());
+  }
+
+  @Test
+  public void testRejectedMergeChangesNothing() {
+    RangeStats stats = RangeStats.of(new double[] {1.0, 2.0, 3.0});
+    RangeStats other = new RangeStats(0.05);
+    other.accept(100.0);
+    try {
+      stats.merge(other);
+      fail();
+    } catch (IllegalArgumentException ignored) { }
+    assertEquals(3, stats.getCount());
+    assertEquals(6.0, stats.getSum(), 0.0);
+    assertEquals(1.0, stats.getMin(), 0.0);
+    assertEquals(3.0, stats.getMax(), 0.0);
+    assertEquals(2.0, stats.getMean(), 0.0);
+    assertEquals(2.0 / 3.0, stats.getVariance(), 1.0e-15);
+    assertEquals(3.0, stats.getQuantile(1.0), 3.0 * 0.01);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEmpty() {
+    new RangeStats().getMean();
+  }
+}
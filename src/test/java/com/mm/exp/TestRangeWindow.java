@@ -0,0 +1,90 @@
+package com.mm.exp;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"MagicNumber", "HardCodedStringLiteral"})
+public class TestRangeWindow {
+
+  @Test
+  public void testCountWindowMatchesFullScan() {
+    int count = 37;
+    RangeWindow window = RangeWindow.ofCount(count);
+    Random random = new Random(3L);
+    double[] data = new double[2000];
+    for (int i = 0; i < data.length; ++i) {
+      // Runs of rising and falling values exercise both deques.
+      data[i] = (i % 100 < 50) ? i % 100 : -(i % 100);
+      data[i] += random.nextInt(10);
+      window.add(data[i]);
+
+      int from = Math.max(0, i + 1 - count);
+      double[] expected = new double[i + 1 - from];
+      System.arraycopy(data, from, expected, 0, expected.length);
+      assertEquals(expected.length, window.size());
+      assertEquals(Range.getMin(expected), window.getMin(), 0.0);
+      assertEquals(Range.getMax(expected), window.getMax(), 0.0);
+    }
+  }
+
+  @Test
+  public void testTimeWindow() {
+    RangeWindow window = RangeWindow.ofDuration(10L, 100);
+    window.add(0L, 5.0);
+    window.add(3L, 1.0);
+    window.add(6L, 9.0);
+    assertEquals(1.0, window.current().getMin(), 0.0);
+    assertEquals(9.0, window.current().getMax(), 0.0);
+
+    window.add(13L, 4.0); // drops the values at 0 and 3
+    assertEquals(2, window.size());
+    assertEquals(4.0, window.getMin(), 0.0);
+    assertEquals(9.0, window.getMax(), 0.0);
+
+    window.expire(16L); // drops the value at 6
+    assertEquals(1, window.size());
+    assertEquals(4.0, window.getMax(), 0.0);
+
+    window.expire(23L);
+    assertTrue(window.isEmpty());
+  }
+
+  @Test
+  public void testTimeWindowCapacity() {
+    RangeWindow window = RangeWindow.ofDuration(1000L, 2);
+    window.add(1L, 100.0);
+    window.add(2L, 1.0);
+    window.add(3L, 2.0);
+    assertEquals(1.0, window.getMin(), 0.0);
+    assertEquals(2.0, window.getMax(), 0.0);
+  }
+
+  @Test
+  public void testNaNIgnored() {
+    RangeWindow window = RangeWindow.ofCount(3);
+    window.add(Double.NaN);
+    assertTrue(window.isEmpty());
+    window.add(2.0);
+    window.add(Double.NaN);
+    window.add(-2.0);
+    assertEquals(-2.0, window.getMin(), 0.0);
+    assertEquals(2.0, window.getMax(), 0.0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEmptyWindow() {
+    RangeWindow window = RangeWindow.ofCount(3);
+    window.add(1.0);
+    window.clear();
+    window.current();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTimeGoesBackwards() {
+    RangeWindow window = RangeWindow.ofDuration(10L, 10);
+    window.add(5L, 1.0);
+    window.add(4L, 1.0);
+  }
+}
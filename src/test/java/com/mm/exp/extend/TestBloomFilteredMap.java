@@ -0,0 +1,132 @@
+package com.mm.exp.extend;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"HardCodedStringLiteral", "MagicNumber"})
+public class TestBloomFilteredMap {
+
+	/**
+	 * Stands in for a slow map, by counting the lookups that reach it.
+	 */
+	private static final class CountingMap extends HashMap<String, Integer> {
+		private int lookups = 0;
+
+		@Override
+		public Integer get(Object key) {
+			lookups++;
+			return super.get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			lookups++;
+			return super.containsKey(key);
+		}
+
+		@Override
+		public Integer getOrDefault(Object key, Integer defaultValue) {
+			lookups++;
+			return super.getOrDefault(key, defaultValue);
+		}
+	}
+
+	@Test
+	public void testMissesSkipTheWrappedMap() {
+		CountingMap backing = new CountingMap();
+		SafeMap<String, Integer> map = MapUtil.wrapBloomFiltered(MapUtil.wrap(backing), String.class, 1000, 0.01);
+		for (int i = 0; i < 1000; ++i) {
+			map.put("key" + i, i);
+		}
+		backing.lookups = 0;
+		for (int i = 0; i < 10_000; ++i) {
+			assertNull(map.find("missing" + i));
+		}
+		assertTrue(backing.lookups + " misses reached the map", backing.lookups < 300);
+
+		for (int i = 0; i < 1000; ++i) {
+			assertEquals(i, map.find("key" + i).intValue());
+			assertTrue(map.safeHasKey("key" + i));
+		}
+		assertEquals(-1, map.safeGetOrDefault("missing", -1).intValue());
+	}
+
+	@Test
+	public void testNoFalseNegativesAcrossRebuilds() {
+		Random random = new Random(51L);
+		HashMap<String, Integer> backing = new HashMap<>();
+		backing.put("existing", 0);
+		SafeMap<String, Integer> map = MapUtil.wrapBloomFiltered(MapUtil.wrap(backing), String.class, 10, 0.05);
+		assertTrue(map.safeHasKey("existing"));
+
+		Set<String> expected = new HashSet<>();
+		expected.add("existing");
+		for (int i = 0; i < 20_000; ++i) {
+			String key = String.valueOf(random.nextInt(3000));
+			if (random.nextInt(3) == 0) {
+				map.safeRemove(key);
+				expected.remove(key);
+			} else {
+				map.put(key, i);
+				expected.add(key);
+			}
+		}
+		assertEquals(expected, backing.keySet());
+		for (String key : expected) {
+			assertTrue(key, map.safeHasKey(key));
+		}
+		map.clear();
+		assertTrue(backing.isEmpty());
+		assertFalse(map.safeHasKey("existing"));
+	}
+
+	@Test
+	public void testViewRemovalsRebuildTheFilter() {
+		CountingMap backing = new CountingMap();
+		SafeMap<String, Integer> map = MapUtil.wrapBloomFiltered(MapUtil.wrap(backing), String.class, 1200, 0.01);
+		for (int i = 0; i < 1200; ++i) {
+			map.put("key" + i, i);
+		}
+		// Remove every key through the views, so stale bits would let every lookup through if they weren't counted.
+		map.keySet().removeIf(key -> key.endsWith("0"));
+		map.values().removeIf(value -> (value % 10) == 1);
+		Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+		while (iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+		assertTrue(backing.isEmpty());
+
+		backing.lookups = 0;
+		for (int i = 0; i < 1200; ++i) {
+			assertFalse(map.safeHasKey("key" + i));
+		}
+		assertTrue(backing.lookups + " removed keys reached the map", backing.lookups < 100);
+
+		map.put("again", 1);
+		assertTrue(map.keySet().contains("again"));
+		assertTrue(map.keySet().remove("again"));
+		assertFalse(map.keySet().remove("again"));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testFailFast() {
+		SafeMap<String, Integer> map = MapUtil.wrapBloomFiltered(MapUtil.wrap(new HashMap<>()), String.class, 10, 0.01);
+		Integer wrongKey = 0;
+		try {
+			//noinspection deprecation
+			map.get(wrongKey);
+			fail("get");
+		} catch (ClassCastException cce) {
+			assertTrue(cce.getMessage().contains(Integer.class.getName()));
+		}
+	}
+}
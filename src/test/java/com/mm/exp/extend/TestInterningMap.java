@@ -0,0 +1,177 @@
+package com.mm.exp.extend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"HardCodedStringLiteral", "MagicNumber"})
+public class TestInterningMap {
+
+	@Test
+	public void testValuesAreShared() {
+		SafeMap<Integer, String> map = MapUtil.interning(Integer.class, String.class);
+		String first = new String(new char[] {'a', 'b', 'c'});
+		String second = new String(new char[] {'a', 'b', 'c'});
+		assertNotSame(first, second);
+
+		map.put(1, first);
+		map.put(2, second);
+		assertSame(map.find(1), map.find(2));
+		assertEquals("abc", map.find(2));
+		assertTrue(map.safeHasValue("abc"));
+		assertFalse(map.safeHasValue("xyz"));
+	}
+
+	@Test
+	public void testMutableValuesAreNotShared() {
+		SafeMap<String, Date> first = MapUtil.interning(String.class, Date.class);
+		SafeMap<String, Date> second = MapUtil.interning(String.class, Date.class);
+		Date date = new Date(1000L);
+		first.put("a", date);
+		second.put("a", new Date(1000L));
+		assertNotSame(first.find("a"), second.find("a"));
+		first.find("a").setTime(2000L);
+		assertEquals(new Date(1000L), second.find("a"));
+		assertSame(date, first.find("a"));
+	}
+
+	@Test
+	public void testKeysAreShared() {
+		SafeMap<String, Integer> first = MapUtil.interning(String.class, Integer.class, true, -1);
+		SafeMap<String, Integer> second = MapUtil.interning(String.class, Integer.class, true, -1);
+		first.put(new String(new char[] {'k', 'e', 'y'}), 1);
+		second.put(new String(new char[] {'k', 'e', 'y'}), 2);
+		assertSame(first.keySet().iterator().next(), second.keySet().iterator().next());
+	}
+
+	@Test
+	public void testCompressedStrings() {
+		SafeMap<String, String> map = MapUtil.interning(String.class, String.class, false, 64);
+		String large = repeat("{\"name\":\"value\",\"count\":12}", 100);
+		map.put("large", large);
+		map.put("small", "tiny");
+		assertEquals(large, map.find("large"));
+		assertEquals("tiny", map.find("small"));
+		assertTrue(map.safeHasValue(large));
+		assertEquals(large, map.put("large", "replaced"));
+		assertEquals("replaced", map.find("large"));
+	}
+
+	@Test
+	public void testCompressedBytes() {
+		SafeMap<String, byte[]> map = MapUtil.interning(String.class, byte[].class, false, 16);
+		byte[] blob = new byte[1000];
+		Arrays.fill(blob, (byte) 7);
+		map.put("a", blob);
+		map.put("b", blob.clone());
+		assertArrayEquals(blob, map.find("a"));
+		assertArrayEquals(blob, map.find("b"));
+		assertNotSame(blob, map.find("a"));
+		assertTrue(map.safeHasValue(blob.clone()));
+	}
+
+	@Test
+	public void testBytesAreCopied() {
+		SafeMap<String, byte[]> first = MapUtil.interning(String.class, byte[].class);
+		SafeMap<String, byte[]> second = MapUtil.interning(String.class, byte[].class);
+		byte[] bytes = {1, 2, 3};
+		first.put("a", bytes);
+		second.put("a", bytes.clone());
+		bytes[0] = 50;
+		first.find("a")[0] = 99;
+		assertArrayEquals(new byte[] {1, 2, 3}, first.find("a"));
+		assertArrayEquals(new byte[] {1, 2, 3}, second.find("a"));
+		assertNotSame(first.find("a"), first.find("a"));
+
+		// The pool still finds the stored array by its content.
+		Interner interner = new Interner();
+		SafeMap<String, byte[]> third = new InterningMap<>(String.class, byte[].class, false, -1, interner);
+		third.put("x", new byte[] {4, 5});
+		third.find("x")[0] = 0;
+		third.put("y", new byte[] {4, 5});
+		assertEquals(1, interner.size());
+	}
+
+	@Test
+	public void testEntryContract() {
+		SafeMap<String, String> map = MapUtil.interning(String.class, String.class, false, 8);
+		map.put("large", repeat("x", 50));
+		map.put("small", "y");
+		Map<String, String> expected = new HashMap<>(map);
+		assertEquals(expected, map);
+		assertEquals(map, expected);
+		assertEquals(expected.hashCode(), map.hashCode());
+		assertEquals(expected.entrySet(), map.entrySet());
+
+		byte[] bytes = {1, 2, 3};
+		SafeMap<String, byte[]> bytesMap = MapUtil.interning(String.class, byte[].class, false, 8);
+		bytesMap.put("a", bytes);
+		Map<String, byte[]> sameArray = new HashMap<>();
+		sameArray.put("a", bytes);
+		// Arrays compare by identity, and the map only ever hands out copies.
+		assertNotEquals(sameArray, bytesMap);
+		assertNotEquals(bytesMap, sameArray);
+		Map.Entry<String, byte[]> entry = bytesMap.entrySet().iterator().next();
+		assertEquals(entry, entry);
+		assertEquals(entry.hashCode(), entry.hashCode());
+		assertEquals(bytesMap.hashCode(), bytesMap.hashCode());
+	}
+
+	@Test
+	public void testEntryViews() {
+		SafeMap<String, String> map = MapUtil.interning(String.class, String.class, false, 8);
+		map.put("a", repeat("x", 50));
+		map.put("b", "y");
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			if (entry.getKey().equals("a")) {
+				assertEquals(repeat("x", 50), entry.getValue());
+				entry.setValue(repeat("z", 40));
+			}
+		}
+		assertEquals(repeat("z", 40), map.find("a"));
+		map.values().remove("y");
+		assertEquals(1, map.size());
+		assertFalse(map.safeHasKey("b"));
+	}
+
+	@Test
+	public void testFailFast() {
+		SafeMap<String, Integer> map = MapUtil.interning(String.class, Integer.class);
+		map.put("1", 1);
+		Integer wrongKey = 1;
+		try {
+			//noinspection deprecation,ResultOfMethodCallIgnored
+			map.containsKey(wrongKey);
+			fail("containsKey");
+		} catch (ClassCastException cce) {
+			assertTrue(cce.getMessage().contains(Integer.class.getName()));
+		}
+		assertEquals(1, map.safeGetOrDefault("1", 5).intValue());
+		assertEquals(5, map.safeGetOrDefault("2", 5).intValue());
+	}
+
+	@Test
+	public void testInternerComparesBytesByContent() {
+		Interner interner = new Interner();
+		byte[] first = {1, 2, 3};
+		assertSame(first, interner.intern(first));
+		assertSame(first, interner.intern(new byte[] {1, 2, 3}));
+		// Equal values of different classes are never substituted for each other.
+		interner.intern(new ArrayList<>(Arrays.asList(1, 2)));
+		assertEquals(LinkedList.class, interner.intern(new LinkedList<>(Arrays.asList(1, 2))).getClass());
+	}
+
+	private static String repeat(String s, int count) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < count; ++i) {
+			builder.append(s);
+		}
+		return builder.toString();
+	}
+}
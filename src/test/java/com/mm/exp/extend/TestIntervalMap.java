@@ -0,0 +1,166 @@
+package com.mm.exp.extend;
+
+import com.mm.exp.AllocationMeter;
+import com.mm.exp.Range;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"HardCodedStringLiteral", "MagicNumber"})
+public class TestIntervalMap {
+	// Results go here, so the JIT can't discard the calls.
+	private double sink;
+
+	@Test
+	public void testQueriesMatchLinearScan() {
+		Random random = new Random(31L);
+		IntervalMap<Integer, String> map = new IntervalMap<>(Integer.class);
+		LongIntervalMap<String> longMap = new LongIntervalMap<>(2);
+		DoubleIntervalMap<String> doubleMap = new DoubleIntervalMap<>();
+		List<Range<Integer>> ranges = new ArrayList<>();
+		for (int i = 0; i < 2000; ++i) {
+			int start = random.nextInt(10_000) - 5000;
+			Range<Integer> range = new Range<>(start, start + random.nextInt(300));
+			String value = range.toString();
+			if (map.put(range, value) == null) {
+				ranges.add(range);
+			}
+			longMap.put(range.getMin(), range.getMax(), value);
+			doubleMap.put(range.getMin(), range.getMax(), value);
+			// Remove some, so deletion gets exercised too.
+			if ((i % 5) == 0) {
+				Range<Integer> removed = ranges.remove(random.nextInt(ranges.size()));
+				assertEquals(removed.toString(), map.safeRemove(removed));
+				assertEquals(removed.toString(), longMap.remove(removed.getMin(), removed.getMax()));
+				assertEquals(removed.toString(), doubleMap.remove(removed.getMin(), removed.getMax()));
+			}
+		}
+		assertEquals(ranges.size(), map.size());
+		assertEquals(ranges.size(), longMap.size());
+		assertEquals(ranges.size(), doubleMap.size());
+		ranges.sort((a, b) -> (a.getMin().equals(b.getMin()))
+				? a.getMax().compareTo(b.getMax()) : a.getMin().compareTo(b.getMin()));
+
+		for (int i = 0; i < 500; ++i) {
+			int point = random.nextInt(11_000) - 5500;
+			List<String> expected = new ArrayList<>();
+			for (Range<Integer> range : ranges) {
+				if ((range.getMin() <= point) && (range.getMax() >= point)) {
+					expected.add(range.toString());
+				}
+			}
+			assertEquals(expected, values(map.findContaining(point)));
+			assertEquals(expected, longMap.findContaining(point));
+			assertEquals(expected, doubleMap.findContaining(point));
+
+			Range<Integer> query = new Range<>(point, point + random.nextInt(100));
+			expected.clear();
+			for (Range<Integer> range : ranges) {
+				if ((range.getMin() <= query.getMax()) && (range.getMax() >= query.getMin())) {
+					expected.add(range.toString());
+				}
+			}
+			assertEquals(expected, values(map.findOverlapping(query)));
+			assertEquals(expected, longMap.findOverlapping(query.getMin(), query.getMax()));
+			assertEquals(expected, doubleMap.findOverlapping(query.getMin(), query.getMax()));
+		}
+
+		List<Range<Integer>> keys = new ArrayList<>(map.keySet());
+		assertEquals(ranges, keys);
+	}
+
+	@Test
+	public void testMapMethods() {
+		IntervalMap<Long, String> map = new IntervalMap<>(Long.class);
+		assertNull(map.put(new Range<>(10L, 1L), "a"));
+		assertEquals("a", map.put(new Range<>(1L, 10L), "b"));
+		assertEquals(1, map.size());
+		assertEquals("b", map.find(new Range<>(1L, 10L)));
+		assertTrue(map.safeHasKey(new Range<>(10L, 1L)));
+		assertEquals("x", map.safeGetOrDefault(new Range<>(1L, 11L), "x"));
+
+		map.put(new Range<>(5L, 6L), "c");
+		map.put(new Range<>(0L, 3L), "d");
+		Iterator<Map.Entry<Range<Long>, String>> iterator = map.entrySet().iterator();
+		assertEquals("d", iterator.next().getValue());
+		assertEquals("b", iterator.next().getValue());
+		iterator.remove();
+		assertEquals("c", iterator.next().getValue());
+		assertFalse(iterator.hasNext());
+		assertEquals(2, map.size());
+		assertTrue(map.findContaining(2L).get(0).getKey().equals(new Range<>(0L, 3L)));
+	}
+
+	@Test
+	public void testFailFast() {
+		IntervalMap<Long, String> map = new IntervalMap<>(Long.class);
+		map.put(new Range<>(1L, 2L), "a");
+		try {
+			//noinspection deprecation
+			map.get(new Range<>(1, 2));
+			fail("get");
+		} catch (ClassCastException cce) {
+			assertTrue(cce.getMessage().contains(Integer.class.getName()));
+		}
+	}
+
+	@Test
+	public void testDoubleBounds() {
+		DoubleIntervalMap<String> map = new DoubleIntervalMap<>();
+		map.put(-0.0, 1.5, "a");
+		map.put(-10.25, -1.0, "b");
+		map.put(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, "all");
+		assertEquals("a", map.get(0.0, 1.5));
+		assertEquals(listOf("all", "a"), map.findContaining(0.0));
+		assertEquals(listOf("all", "b"), map.findContaining(-1.0));
+		List<Double> bounds = new ArrayList<>();
+		map.forEachOverlapping(1.0, 2.0, (min, max, value) -> {
+			bounds.add(min);
+			bounds.add(max);
+		});
+		assertEquals(listOf(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0.0, 1.5), bounds);
+	}
+
+	@Test
+	public void testDoubleForEachDoesNotAllocate() {
+		DoubleIntervalMap<String> map = new DoubleIntervalMap<>();
+		for (int i = 0; i < 64; ++i) {
+			map.put(i, i + 2.5, "v" + i);
+		}
+		// A query nested inside another one must not disturb it.
+		List<String> pairs = new ArrayList<>();
+		map.forEachContaining(3.0, (min, max, value) ->
+				map.forEachContaining(max, (innerMin, innerMax, inner) -> pairs.add(value + inner)));
+		assertEquals(listOf("v1v1", "v1v2", "v1v3", "v2v2", "v2v3", "v2v4", "v3v3", "v3v4", "v3v5"), pairs);
+
+		AllocationMeter.assumeSupported();
+		DoubleIntervalMap.IntervalConsumer<String> consumer = (min, max, value) -> sink += max - min;
+		double bytes = AllocationMeter.bytesPerCall(() -> {
+			map.forEachOverlapping(10.0, 20.0, consumer);
+			map.forEachContaining(30.0, consumer);
+		});
+		assertTrue(String.format("forEach allocated %.2f bytes per call", bytes), bytes < 1.0);
+	}
+
+	@SafeVarargs
+	private static <T> List<T> listOf(T... items) {
+		List<T> list = new ArrayList<>();
+		for (T item : items) {
+			list.add(item);
+		}
+		return list;
+	}
+
+	private static <K, V> List<V> values(List<Map.Entry<K, V>> entries) {
+		List<V> values = new ArrayList<>();
+		for (Map.Entry<K, V> entry : entries) {
+			values.add(entry.getValue());
+		}
+		return values;
+	}
+}
@@ -0,0 +1,123 @@
+package com.mm.exp.extend;
+
+import com.mm.exp.Range;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"HardCodedStringLiteral", "MagicNumber"})
+public class TestRangeIndexedMap {
+
+	@Test
+	public void testRangeTracksRandomChanges() {
+		Random random = new Random(36L);
+		// A TreeMap underneath, since its iterator reuses removed entries.
+		KeyRangeIndexedMap<Integer, Double> map
+				= MapUtil.wrapKeyRangeIndexed(MapUtil.wrap(new TreeMap<>()), Integer.class, Double.class);
+		for (int step = 0; step < 20_000; ++step) {
+			int key = random.nextInt(200);
+			switch (random.nextInt(6)) {
+				case 0:
+					map.safeRemove(key);
+					break;
+				case 1:
+					map.merge(key, 1.0, Double::sum);
+					break;
+				case 2:
+					for (Iterator<Map.Entry<Integer, Double>> iterator = map.entrySet().iterator(); iterator.hasNext(); ) {
+						if (iterator.next().getKey() == key) {
+							iterator.remove();
+						}
+					}
+					break;
+				case 3:
+					for (Map.Entry<Integer, Double> entry : map.entrySet()) {
+						if (entry.getKey() == key) {
+							entry.setValue(random.nextGaussian());
+						}
+					}
+					break;
+				default:
+					map.put(key, random.nextGaussian() * 100.0);
+			}
+			if (map.isEmpty()) {
+				continue;
+			}
+			assertEquals(Range.getRange(map.values()), map.valueRange());
+			assertEquals(Range.getRange(map.keySet()), map.keyRange());
+		}
+		map.values().removeIf(value -> value > 0.0);
+		assertEquals(Range.getRange(map.values()), map.valueRange());
+		assertEquals(Range.getRange(map.keySet()), map.keyRange());
+		map.replaceAll((key, value) -> value - 1000.0);
+		assertEquals(Range.getRange(map.values()), map.valueRange());
+	}
+
+	@Test
+	public void testDuplicateValues() {
+		RangeIndexedMap<String, Integer> map
+				= MapUtil.wrapRangeIndexed(MapUtil.wrap(new HashMap<>()), String.class, Integer.class);
+		map.put("a", 5);
+		map.put("b", 5);
+		map.put("c", 9);
+		map.put("c", 1);
+		assertEquals(new Range<>(1, 5), map.valueRange());
+		map.safeRemove("c");
+		assertEquals(new Range<>(5, 5), map.valueRange());
+		map.safeRemove("a");
+		assertEquals(new Range<>(5, 5), map.valueRange());
+		assertTrue(map.safeHasValue(5));
+		assertFalse(map.safeHasValue(9));
+		map.clear();
+		try {
+			map.valueRange();
+			fail();
+		} catch (IllegalStateException ignored) { }
+	}
+
+	@Test
+	public void testExistingEntriesAndComposition() {
+		Map<String, Long> backing = new HashMap<>();
+		backing.put("x", 40L);
+		backing.put("y", -3L);
+		SafeMap<String, Long> failFast = MapUtil.wrapFailFast(backing, String.class, Long.class);
+		RangeIndexedMap<String, Long> map = MapUtil.wrapRangeIndexed(failFast, String.class, Long.class);
+		assertEquals(new Range<>(-3L, 40L), map.valueRange());
+
+		SafeMap<String, Long> filtered = MapUtil.wrapBloomFiltered(map, String.class, 100, 0.01);
+		filtered.put("z", 100L);
+		filtered.safeRemove("y");
+		assertEquals(new Range<>(40L, 100L), map.valueRange());
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testFailFast() {
+		RangeIndexedMap<String, Integer> map
+				= MapUtil.wrapRangeIndexed(MapUtil.wrap(new HashMap<>()), String.class, Integer.class);
+		map.put("a", 1);
+		try {
+			map.get(1);
+			fail();
+		} catch (ClassCastException ignored) { }
+		try {
+			map.containsValue("1");
+			fail();
+		} catch (ClassCastException ignored) { }
+		try {
+			map.remove(1);
+			fail();
+		} catch (ClassCastException ignored) { }
+		try {
+			map.put("b", null);
+			fail();
+		} catch (NullPointerException ignored) { }
+		assertEquals(1, map.size());
+		assertEquals(new Range<>(1, 1), map.valueRange());
+	}
+}
@@ -0,0 +1,87 @@
+package com.mm.exp.extend;
+
+import com.mm.exp.AllocationMeter;
+import java.util.HashMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that the typesafe lookup methods of each SafeMap implementation don't allocate. The keys are created
+ * up front, so any allocation measured here comes from the map itself.
+ */
+@SuppressWarnings({"MagicNumber", "HardCodedStringLiteral"})
+public class TestSafeMapAllocation {
+	private static final int SIZE = 64;
+	private static final Integer DEFAULT = -1;
+
+	private final String[] keys = new String[SIZE];
+	private final String missingKey = "missing";
+	
+	// Results go here, so the JIT can't discard the calls.
+	private long sink;
+
+	@Before
+	public void setUp() {
+		AllocationMeter.assumeSupported();
+		for (int i = 0; i < SIZE; ++i) {
+			keys[i] = String.valueOf(i);
+			keys[i].hashCode(); // Strings cache their hash, so do it before measuring.
+		}
+		missingKey.hashCode();
+	}
+
+	@Test
+	public void testSafeHashMap() {
+		verifyLookups("SafeHashMap", fill(new SafeHashMap<>(String.class, Integer.class)));
+	}
+
+	@Test
+	public void testWrappedMap() {
+		verifyLookups("WrappedMap", fill(MapUtil.wrap(new HashMap<>())));
+	}
+
+	@Test
+	public void testSafeWrappedMap() {
+		verifyLookups("SafeWrappedMap", fill(MapUtil.wrapFailFast(new HashMap<>(), String.class, Integer.class)));
+	}
+
+	private SafeMap<String, Integer> fill(SafeMap<String, Integer> map) {
+		for (int i = 0; i < SIZE; ++i) {
+			map.put(keys[i], i);
+		}
+		return map;
+	}
+
+	private void verifyLookups(String name, SafeMap<String, Integer> map) {
+		assertNoAllocation(name + ".find", () -> {
+			for (String key : keys) {
+				sink += map.find(key);
+			}
+		});
+		assertNoAllocation(name + ".find (missing)", () -> {
+			if (map.find(missingKey) == null) {
+				sink++;
+			}
+		});
+		assertNoAllocation(name + ".safeHasKey", () -> {
+			for (String key : keys) {
+				if (map.safeHasKey(key)) {
+					sink++;
+				}
+			}
+		});
+		assertNoAllocation(name + ".safeGetOrDefault", () -> {
+			for (String key : keys) {
+				sink += map.safeGetOrDefault(key, DEFAULT);
+			}
+			sink += map.safeGetOrDefault(missingKey, DEFAULT);
+		});
+	}
+
+	private static void assertNoAllocation(String name, Runnable operation) {
+		double bytes = AllocationMeter.bytesPerCall(operation);
+		assertTrue(String.format("%s allocated %.2f bytes per call", name, bytes), bytes < 1.0);
+	}
+}
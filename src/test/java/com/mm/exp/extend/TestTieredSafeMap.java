@@ -0,0 +1,198 @@
+package com.mm.exp.extend;
+
+import com.mm.exp.extend.TieredSafeMap.ValueCodec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"HardCodedStringLiteral", "MagicNumber"})
+public class TestTieredSafeMap {
+	private Path directory;
+	private TieredSafeMap<Integer, String> map;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("tiered");
+		// Small segments, so the tests roll over and compact many of them.
+		map = new TieredSafeMap<>(Integer.class, String.class, ValueCodec.strings(), 10, directory, 512);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		map.close();
+		assertEquals(0L, fileCount());
+		Files.delete(directory);
+	}
+
+	private long fileCount() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+	@Test
+	public void testSpillAndPromote() {
+		for (int i = 0; i < 100; ++i) {
+			map.put(i, "value " + i);
+		}
+		assertEquals(100, map.size());
+		assertEquals(10, map.getHotSize());
+		assertEquals(90, map.getColdSize());
+		assertTrue(map.safeHasKey(5));
+		assertTrue(map.safeHasValue("value 5"));
+
+		assertEquals("value 95", map.find(95));
+		assertEquals("value 5", map.find(5));
+		assertNull(map.find(500));
+		assertEquals(1L, map.getHotHits());
+		assertEquals(1L, map.getColdHits());
+		assertEquals(1L, map.getMisses());
+		assertEquals(1.0 / 3.0, map.getColdHitRate(), 1.0e-9);
+
+		// 5 got promoted, so it's now a hot hit, and 90, the least recently used, got spilled to make room.
+		assertEquals("value 5", map.find(5));
+		assertEquals(2L, map.getHotHits());
+		assertEquals(10, map.getHotSize());
+		assertEquals("value 90", map.find(90));
+		assertEquals(2L, map.getColdHits());
+
+		assertEquals("value 7", map.put(7, "seven"));
+		assertEquals("seven", map.safeRemove(7));
+		assertEquals("value 8", map.safeRemove(8));
+		assertNull(map.safeRemove(8));
+		assertEquals(98, map.size());
+	}
+
+	@Test
+	public void testMatchesHashMap() throws IOException {
+		Map<Integer, String> expected = new HashMap<>();
+		Random random = new Random(37L);
+		for (int step = 0; step < 20_000; ++step) {
+			int key = random.nextInt(300);
+			switch (random.nextInt(4)) {
+				case 0:
+					assertEquals(expected.remove(key), map.safeRemove(key));
+					break;
+				case 1:
+					assertEquals(expected.get(key), map.find(key));
+					break;
+				default:
+					String value = "v" + random.nextInt(1_000_000);
+					assertEquals(expected.put(key, value), map.put(key, value));
+			}
+		}
+		assertEquals(expected, map);
+		assertEquals(expected.size(), map.size());
+		assertEquals(map.getColdSize() + map.getHotSize(), map.size());
+
+		// Compaction has been keeping the dead bytes down to about half the files.
+		long liveBytes = 0L;
+		for (String value : expected.values()) {
+			liveBytes += value.length();
+		}
+		assertTrue(map.getDiskBytes() < (2 * liveBytes) + 1024);
+		map.compact();
+		assertTrue(map.getDiskBytes() <= liveBytes);
+		assertEquals(expected, map);
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals(0L, fileCount());
+	}
+
+	@Test
+	public void testViews() {
+		for (int i = 0; i < 50; ++i) {
+			map.put(i, Integer.toString(i));
+		}
+		for (Map.Entry<Integer, String> entry : map.entrySet()) {
+			entry.setValue(entry.getValue() + "!");
+		}
+		for (Iterator<Integer> iterator = map.keySet().iterator(); iterator.hasNext(); ) {
+			if (iterator.next() % 2 == 0) {
+				iterator.remove();
+			}
+		}
+		// Iteration doesn't count as lookups, or move anything between the tiers.
+		assertEquals(0L, map.getHotHits() + map.getColdHits() + map.getMisses());
+		assertEquals(25, map.size());
+		for (int i = 0; i < 50; ++i) {
+			assertEquals((i % 2 == 0) ? null : (i + "!"), map.find(i));
+		}
+		map.values().removeIf(value -> value.startsWith("1"));
+		assertFalse(map.safeHasKey(11));
+		assertTrue(map.safeHasKey(21));
+	}
+
+	@Test
+	public void testIteratorRemoveNeedsNext() throws IOException {
+		try (TieredSafeMap<Integer, String> small
+				= new TieredSafeMap<>(Integer.class, String.class, ValueCodec.strings(), 1, directory, 512)) {
+			small.put(1, "one");
+			small.put(2, "two");
+			Iterator<Map.Entry<Integer, String>> iterator = small.entrySet().iterator();
+			try {
+				iterator.remove();
+				fail();
+			} catch (IllegalStateException ignored) { }
+			iterator.next();
+			iterator.next(); // the entry on disk
+			iterator.remove();
+			try {
+				iterator.remove();
+				fail();
+			} catch (IllegalStateException ignored) { }
+			assertEquals(1, small.size());
+
+			iterator = small.entrySet().iterator();
+			iterator.next(); // the entry on the heap
+			iterator.remove();
+			try {
+				iterator.remove();
+				fail();
+			} catch (IllegalStateException ignored) { }
+			assertTrue(small.isEmpty());
+		}
+	}
+
+	@Test
+	public void testSerializableCodec() throws IOException {
+		try (TieredSafeMap<String, Long> longs = new TieredSafeMap<>(
+				String.class, Long.class, ValueCodec.serializable(Long.class), 1, directory)) {
+			longs.put("a", 1L);
+			longs.put("b", Long.MAX_VALUE);
+			assertEquals(1, longs.getColdSize());
+			assertEquals(1L, longs.find("a").longValue());
+			assertEquals(Long.MAX_VALUE, longs.find("b").longValue());
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testFailFast() {
+		map.put(1, "one");
+		try {
+			map.get("1");
+			fail();
+		} catch (ClassCastException ignored) { }
+		try {
+			map.containsValue(1);
+			fail();
+		} catch (ClassCastException ignored) { }
+		try {
+			map.put(2, null);
+			fail();
+		} catch (NullPointerException ignored) { }
+		assertEquals(1, map.size());
+	}
+}